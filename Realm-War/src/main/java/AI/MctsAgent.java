@@ -0,0 +1,418 @@
+package AI;
+
+import Engine.ActionBuffer;
+import Engine.ActionGenerator;
+import Engine.ActionResult;
+import Engine.Actions;
+import Engine.RulesEngine;
+import Grid.Grid;
+import Grid.Position;
+import Grid.Territory;
+import RealmWar.Player;
+import Structures.Structures;
+import Units.UnitType;
+import Units.Units;
+import Utils.GameLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+// Monte Carlo tree search over the rules engine's own actions. Each decision runs one
+// independent tree per worker on its own fork of the game (root parallel) and then adds up
+// the root statistics, so workers never contend. Search is anytime: it stops at the
+// deadline or iteration cap and plays the most visited action. Workers run in the common
+// fork/join pool, so the agent holds no threads of its own.
+public class MctsAgent implements PlayerAgent {
+
+    public static final double EXPLORATION = 1.4;
+    public static final int MAX_ACTIONS_PER_TURN = 12;
+
+    private final int workers;
+    private final long thinkMillis;
+    private final int maxIterations;
+    private final int rolloutTurns;
+
+    // iterations <= 0 means only the time budget counts, thinkMillis <= 0 means only the
+    // iteration cap does (and the turn timer is ignored); rolloutTurns is per player
+    public MctsAgent(int workers, long thinkMillis, int iterations, int rolloutTurns) {
+        if (thinkMillis <= 0 && iterations <= 0)
+            throw new IllegalArgumentException("MCTS needs a time budget or an iteration cap");
+        this.workers = Math.max(1, workers);
+        this.thinkMillis = thinkMillis;
+        this.maxIterations = iterations;
+        this.rolloutTurns = rolloutTurns;
+    }
+
+    public MctsAgent(int workers, long thinkMillis) {
+        this(workers, thinkMillis, 0, 2);
+    }
+
+    public long getThinkMillis() {
+        return thinkMillis;
+    }
+
+    // Plays a whole turn, never past the engine's turn timer unless there is no time budget.
+    // The caller ends the turn.
+    @Override
+    public void playTurn(RulesEngine engine, Random random) {
+        Player player = engine.getCurrentPlayer();
+        long turnDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, engine.getRemainingTurnTime() - 1));
+        for (int step = 0; step < MAX_ACTIONS_PER_TURN && !engine.isGameOver(); step++) {
+            // Without a budget only the iteration cap stops the search, so seeds alone decide it
+            long deadline = thinkMillis <= 0 ? Long.MAX_VALUE
+                    : Math.min(turnDeadline, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(thinkMillis));
+            long action = chooseAction(engine, deadline, random.nextLong());
+            if (Actions.kind(action) == Actions.END_TURN || Actions.apply(engine, action) != ActionResult.OK
+                    || engine.getCurrentPlayer() != player)
+                return;
+        }
+    }
+
+    // Best action for the current player, searched on forks; the engine itself is untouched
+    public long chooseAction(RulesEngine engine, long deadlineNanos, long seed) {
+        ActionBuffer legal = new ActionBuffer();
+        new ActionGenerator().generate(engine, legal);
+        if (legal.size() == 1)
+            return legal.get(0);
+
+        // Forking touches the source's copy-on-write state, so do it here, not in the workers
+        List<ForkJoinTask<Map<Long, double[]>>> tasks = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            RulesEngine root = engine.fork();
+            Random random = new Random(seed + i * 0x9E3779B97F4A7C15L);
+            tasks.add(ForkJoinTask.adapt(() -> GameLog.quietly(() -> search(root, deadlineNanos, random))));
+        }
+        if (workers == 1) {
+            tasks.get(0).invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+
+        Map<Long, double[]> totals = new HashMap<>();
+        for (ForkJoinTask<Map<Long, double[]>> task : tasks) {
+            task.join().forEach((action, stats) -> {
+                double[] sum = totals.computeIfAbsent(action, a -> new double[2]);
+                sum[0] += stats[0];
+                sum[1] += stats[1];
+            });
+        }
+        long best = Actions.END_TURN_ACTION;
+        double bestVisits = -1;
+        double bestValue = -1;
+        for (int i = 0; i < legal.size(); i++) {
+            long action = legal.get(i);
+            double[] stats = totals.get(action);
+            if (stats == null)
+                continue;
+            double value = stats[1] / stats[0];
+            if (stats[0] > bestVisits || (stats[0] == bestVisits && value > bestValue)) {
+                best = action;
+                bestVisits = stats[0];
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    // One worker's tree; returns visits and total reward of each root action
+    private Map<Long, double[]> search(RulesEngine root, long deadlineNanos, Random random) {
+        int seats = root.getPlayers().size();
+        Node rootNode = new Node(null, Actions.END_TURN_ACTION, -1, 0);
+        ActionGenerator generator = new ActionGenerator();
+        ActionBuffer scratch = new ActionBuffer();
+        // Cell indexes for the rollout, kept in an ActionBuffer as a reusable list of longs
+        ActionBuffer cells = new ActionBuffer();
+
+        for (int iteration = 0; maxIterations <= 0 || iteration < maxIterations; iteration++) {
+            if (iteration > 0 && System.nanoTime() >= deadlineNanos)
+                break;
+            RulesEngine state = root.fork();
+            Node node = rootNode;
+
+            // Selection, replaying the path on the fork
+            while (node.untried != null && node.untried.isEmpty() && !node.children.isEmpty() && !state.isGameOver()) {
+                node = node.select();
+                play(state, node.action);
+            }
+            // Expansion
+            if (!state.isGameOver()) {
+                if (node.untried == null)
+                    node.untried = candidates(state, node, generator, scratch);
+                if (!node.untried.isEmpty()) {
+                    long action = node.untried.swapRemove(random.nextInt(node.untried.size()));
+                    int mover = state.getCurrentPlayerIndex();
+                    play(state, action);
+                    int turnActions = Actions.kind(action) == Actions.END_TURN ? 0 : node.turnActions + 1;
+                    Node child = new Node(node, action, mover, turnActions);
+                    node.children.add(child);
+                    node = child;
+                }
+            }
+            // Rollout, then score the position. The turn the tree was in ends as the tree
+            // left it: letting the policy finish it would credit ending the turn early with
+            // whatever the policy then does
+            if (node.turnActions > 0 && !state.isGameOver())
+                endTurn(state);
+            for (int turn = 0; turn < rolloutTurns * seats && !state.isGameOver(); turn++) {
+                rolloutTurn(state, generator, scratch, cells, random);
+                endTurn(state);
+            }
+            double[] rewards = evaluate(state);
+            // Backpropagation: each node keeps the reward of the player who chose it
+            for (Node n = node; n != null; n = n.parent) {
+                n.visits++;
+                if (n.mover >= 0)
+                    n.reward += rewards[n.mover];
+            }
+        }
+
+        Map<Long, double[]> stats = new HashMap<>();
+        for (Node child : rootNode.children) {
+            stats.put(child.action, new double[]{child.visits, child.reward});
+        }
+        return stats;
+    }
+
+    // Legal actions, less a unit moving twice in one turn: the rules allow it, but it only
+    // multiplies the branching without reaching new squares
+    private ActionBuffer candidates(RulesEngine state, Node node, ActionGenerator generator, ActionBuffer scratch) {
+        ActionBuffer actions = new ActionBuffer(1);
+        if (node.turnActions >= MAX_ACTIONS_PER_TURN) {
+            actions.add(Actions.END_TURN_ACTION);
+            return actions;
+        }
+        generator.generate(state, scratch);
+        for (int i = 0; i < scratch.size(); i++) {
+            long action = scratch.get(i);
+            if (Actions.kind(action) != Actions.MOVE || !movedThisTurn(node, Actions.from(action)))
+                actions.add(action);
+        }
+        return actions;
+    }
+
+    // Whether a unit on the cell got there by a move earlier in this turn of the tree
+    private static boolean movedThisTurn(Node node, int cell) {
+        for (Node n = node; n != null && n.turnActions > 0; n = n.parent) {
+            if (Actions.kind(n.action) == Actions.MOVE && Actions.to(n.action) == cell)
+                return true;
+        }
+        return false;
+    }
+
+    // Rollout policy: ScriptedAgent's strategy, but on cell indexes and the generator's packed
+    // actions, so it allocates no more than the engine itself. Put up a Town Hall if there is
+    // none (or a Farm when rich), train the strongest unit we can pay for on every free cell,
+    // then each unit attacks what is in range or moves toward the nearest enemy Town Hall
+    // and attacks from there.
+    private static void rolloutTurn(RulesEngine state, ActionGenerator generator, ActionBuffer actions,
+                                    ActionBuffer cells, Random random) {
+        Player player = state.getCurrentPlayer();
+        if (player.isDefeated() || state.isGameOver())
+            return;
+        Grid grid = state.getGrid();
+
+        cells.clear();
+        Territory territory = player.getTerritory();
+        for (int cell = territory.nextCell(0); cell >= 0; cell = territory.nextCell(cell + 1)) {
+            if (grid.getUnit(cell) == null && grid.getStructure(cell) == null)
+                cells.add(cell);
+        }
+        if (grid.getStructureRegistry().count(player, Structures.TOWN_HALL) == 0) {
+            build(state, cells, Structures.TOWN_HALL);
+        } else if (player.getGold() > 60 && cells.size() > 1) {
+            build(state, cells, Structures.FARM);
+        }
+        for (int i = 0; i < cells.size(); i++) {
+            int cell = (int) cells.get(i);
+            // Strongest first, now and then skipping the best for a little variety
+            for (int type = Actions.UNIT_TYPES - 1 - random.nextInt(2); type >= 0; type--) {
+                UnitType unitType = UnitType.byId(type);
+                if (player.canAddUnit(unitType.getPayment(), unitType.getRation(), unitType.getUnitSpace())) {
+                    Actions.apply(state, Actions.train(type, cell));
+                    break;
+                }
+            }
+        }
+
+        int target = enemyTownHall(state, player);
+        cells.clear();
+        List<Units> units = player.getUnits();
+        for (int i = 0; i < units.size(); i++) {
+            Position position = units.get(i).getPosition();
+            cells.add(grid.getCellIndex(position.getX(), position.getY()));
+        }
+        for (int i = 0; i < cells.size() && !state.isGameOver(); i++) {
+            int cell = (int) cells.get(i);
+            // Killed or merged into another by now
+            Units unit = grid.getUnit(cell);
+            if (unit == null || unit.getOwner() != player)
+                continue;
+            generator.generate(state, cell, actions);
+            if (attack(state, actions, random) || target < 0)
+                continue;
+            long move = closerMove(grid, actions, cell, target);
+            if (move != Actions.END_TURN_ACTION && Actions.apply(state, move) == ActionResult.OK) {
+                generator.generate(state, Actions.to(move), actions);
+                attack(state, actions, random);
+            }
+        }
+    }
+
+    private static void build(RulesEngine state, ActionBuffer cells, int type) {
+        for (int i = 0; i < cells.size(); i++) {
+            if (Actions.apply(state, Actions.build(type, (int) cells.get(i))) == ActionResult.OK) {
+                cells.swapRemove(i);
+                return;
+            }
+        }
+    }
+
+    // One of the attacks among actions, chosen uniformly
+    private static boolean attack(RulesEngine state, ActionBuffer actions, Random random) {
+        long attack = Actions.END_TURN_ACTION;
+        int attacks = 0;
+        for (int i = 0; i < actions.size(); i++) {
+            long action = actions.get(i);
+            if (Actions.kind(action) == Actions.ATTACK && random.nextInt(++attacks) == 0)
+                attack = action;
+        }
+        return attacks > 0 && Actions.apply(state, attack) == ActionResult.OK;
+    }
+
+    // The move among actions that gets closest to target, or END_TURN if none gets closer
+    private static long closerMove(Grid grid, ActionBuffer actions, int from, int target) {
+        long best = Actions.END_TURN_ACTION;
+        int bestDistance = distance(grid, from, target);
+        for (int i = 0; i < actions.size(); i++) {
+            long action = actions.get(i);
+            if (Actions.kind(action) != Actions.MOVE || Actions.to(action) == target)
+                continue;
+            int d = distance(grid, Actions.to(action), target);
+            if (d < bestDistance) {
+                best = action;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    // Cell of the enemy Town Hall nearest to our own (or the first one found), or -1
+    private static int enemyTownHall(RulesEngine state, Player player) {
+        Grid grid = state.getGrid();
+        List<Structures> own = grid.getStructureRegistry().get(player, Structures.TOWN_HALL);
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Player other : state.getPlayers()) {
+            if (other == player || other.isDefeated())
+                continue;
+            List<Structures> halls = grid.getStructureRegistry().get(other, Structures.TOWN_HALL);
+            if (halls.isEmpty())
+                continue;
+            int cell = halls.get(0).getCell();
+            int d = own.isEmpty() ? 0 : distance(grid, own.get(0).getCell(), cell);
+            if (d < bestDistance) {
+                best = cell;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    private static int distance(Grid grid, int a, int b) {
+        int width = grid.getWidth();
+        return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+    }
+
+    private static void play(RulesEngine state, long action) {
+        if (Actions.kind(action) == Actions.END_TURN) {
+            endTurn(state);
+        } else {
+            Actions.apply(state, action);
+        }
+    }
+
+    // Simulated turns have no clock, so each one counts as a single resource tick
+    private static void endTurn(RulesEngine state) {
+        state.collectResources();
+        state.endTurn();
+    }
+
+    // Share of total strength per seat; decided games score 1 for the winner
+    static double[] evaluate(RulesEngine state) {
+        List<Player> players = state.getPlayers();
+        double[] rewards = new double[players.size()];
+        Player winner = state.getWinner();
+        if (winner != null) {
+            rewards[players.indexOf(winner)] = 1;
+            return rewards;
+        }
+        double total = 0;
+        for (int i = 0; i < rewards.length; i++) {
+            Player player = players.get(i);
+            if (player.isDefeated())
+                continue;
+            // Banked resources count for little; what they buy counts for more
+            double strength = 1 + 0.1 * (player.getGold() + player.getFood());
+            for (Units unit : player.getUnits()) {
+                strength += unit.getHitPoints() + 2 * unit.getAttackPower();
+            }
+            for (Structures structure : player.getStructures()) {
+                strength += structure.getDurability() + 10 * structure.getCurrentLevel();
+                if (structure.getTypeId() == Structures.TOWN_HALL)
+                    strength += 50;
+            }
+            rewards[i] = strength;
+            total += strength;
+        }
+        // Everyone defeated and nobody won: a draw, shared evenly
+        if (total == 0) {
+            Arrays.fill(rewards, 1.0 / rewards.length);
+            return rewards;
+        }
+        for (int i = 0; i < rewards.length; i++) {
+            rewards[i] /= total;
+        }
+        return rewards;
+    }
+
+    private static final class Node {
+        final Node parent;
+        final long action;
+        // Seat that chose action
+        final int mover;
+        final int turnActions;
+        final List<Node> children = new ArrayList<>();
+        ActionBuffer untried;
+        int visits;
+        double reward;
+
+        Node(Node parent, long action, int mover, int turnActions) {
+            this.parent = parent;
+            this.action = action;
+            this.mover = mover;
+            this.turnActions = turnActions;
+        }
+
+        // UCT; children hold the reward of the seat to act here
+        Node select() {
+            double logVisits = Math.log(visits);
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                double score = child.reward / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (score > bestScore) {
+                    best = child;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package AI;
+
+import Engine.RulesEngine;
+
+import java.util.Random;
+
+// Plays the current player's turn through the rules engine, without any GUI
+public interface PlayerAgent {
+
+    void playTurn(RulesEngine engine, Random random);
+}
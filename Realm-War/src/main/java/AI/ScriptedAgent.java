@@ -0,0 +1,150 @@
+package AI;
+
+import Engine.ActionResult;
+import Engine.RulesEngine;
+import Grid.Grid;
+import Grid.Position;
+import Grid.Territory;
+import RealmWar.Player;
+import Structures.Farm;
+import Structures.Structures;
+import Structures.TownHall;
+import Units.Knight;
+import Units.Peasant;
+import Units.SpearMan;
+import Units.SwordMan;
+import Units.Units;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Simple fixed strategy: build a Town Hall, keep training units on free owned blocks, and
+// march everything at the nearest enemy Town Hall, attacking whatever comes into range.
+public class ScriptedAgent implements PlayerAgent {
+
+    @Override
+    public void playTurn(RulesEngine engine, Random random) {
+        Player player = engine.getCurrentPlayer();
+        if (player.isDefeated() || engine.isGameOver())
+            return;
+        Grid grid = engine.getGrid();
+
+        if (findTownHall(grid, player) == null) {
+            buildOnFreeCell(engine, player, new TownHall(player));
+        } else if (player.getGold() > 60 && freeCells(grid, player).size() > 1) {
+            buildOnFreeCell(engine, player, new Farm(player));
+        }
+
+        trainUnits(engine, player, random);
+
+        Position target = nearestEnemyTownHall(engine, player);
+        for (Units unit : new ArrayList<>(player.getUnits())) {
+            if (engine.isGameOver())
+                return;
+            if (unit.isAlive() && !attackInRange(engine, unit) && target != null) {
+                advance(engine, unit, target);
+                if (unit.isAlive())
+                    attackInRange(engine, unit);
+            }
+        }
+    }
+
+    private void buildOnFreeCell(RulesEngine engine, Player player, Structures structure) {
+        for (Position position : freeCells(engine.getGrid(), player)) {
+            if (engine.build(position, structure) == ActionResult.OK)
+                return;
+        }
+    }
+
+    private void trainUnits(RulesEngine engine, Player player, Random random) {
+        for (Position position : freeCells(engine.getGrid(), player)) {
+            Units[] options = {
+                    new Knight(player, position), new SwordMan(player, position),
+                    new SpearMan(player, position), new Peasant(player, position)
+            };
+            // Prefer the strongest unit we can pay for, with a little variety
+            int start = random.nextInt(2);
+            for (int i = start; i < options.length; i++) {
+                if (engine.train(options[i]) == ActionResult.OK)
+                    break;
+            }
+        }
+    }
+
+    private boolean attackInRange(RulesEngine engine, Units unit) {
+        Grid grid = engine.getGrid();
+        Position from = unit.getPosition();
+        int range = unit.getAttackRange();
+        for (int y = Math.max(0, from.getY() - range); y <= Math.min(grid.getHeight() - 1, from.getY() + range); y++) {
+            for (int x = Math.max(0, from.getX() - range); x <= Math.min(grid.getWidth() - 1, from.getX() + range); x++) {
+                Position target = new Position(x, y);
+                if (unit.isInRange(target) && isEnemyAt(grid, unit.getOwner(), x, y)) {
+                    return engine.attack(unit, target) == ActionResult.OK;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Follow the flow field as far as the unit can move this turn
+    private void advance(RulesEngine engine, Units unit, Position target) {
+        Grid grid = engine.getGrid();
+        List<Position> steps = new ArrayList<>();
+        Position at = unit.getPosition();
+        for (int i = 0; i < unit.getMovementRange(); i++) {
+            int next = grid.getFlowFields().nextStep(at, target);
+            if (next < 0 || next == grid.getCellIndex(target.getX(), target.getY()))
+                break;
+            at = grid.getPosition(next);
+            steps.add(at);
+        }
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            if (engine.move(unit, steps.get(i)) == ActionResult.OK)
+                return;
+        }
+    }
+
+    private boolean isEnemyAt(Grid grid, Player player, int x, int y) {
+        int cell = grid.getCellIndex(x, y);
+        Units unit = grid.getUnit(cell);
+        if (unit != null && !unit.getOwner().equals(player))
+            return true;
+        Structures structure = grid.getStructure(cell);
+        return structure != null && structure.getOwner() != null && !structure.getOwner().equals(player);
+    }
+
+    private List<Position> freeCells(Grid grid, Player player) {
+        List<Position> cells = new ArrayList<>();
+        Territory territory = player.getTerritory();
+        for (int cell = territory.nextCell(0); cell >= 0; cell = territory.nextCell(cell + 1)) {
+            if (grid.getUnit(cell) == null && grid.getStructure(cell) == null)
+                cells.add(grid.getPosition(cell));
+        }
+        return cells;
+    }
+
+    private Position findTownHall(Grid grid, Player player) {
+        List<Structures> halls = grid.getStructureRegistry().get(player, Structures.TOWN_HALL);
+        return halls.isEmpty() ? null : grid.getPosition(halls.get(0).getCell());
+    }
+
+    private Position nearestEnemyTownHall(RulesEngine engine, Player player) {
+        Position own = player.getUnits().isEmpty() ? null : player.getUnits().get(0).getPosition();
+        Position best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Player other : engine.getPlayers()) {
+            if (other == player || other.isDefeated())
+                continue;
+            Position hall = findTownHall(engine.getGrid(), other);
+            if (hall == null)
+                continue;
+            int distance = own == null ? 0 : Math.abs(own.getX() - hall.getX()) + Math.abs(own.getY() - hall.getY());
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = hall;
+            }
+        }
+        return best;
+    }
+}
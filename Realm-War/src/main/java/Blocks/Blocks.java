@@ -1,65 +1,88 @@
 package Blocks;
 
 import RealmWar.Player;
+import Grid.Grid;
 import Grid.Position;
+import Grid.Terrain;
 import Structures.Structures;
 import Units.Units;
 
+// Lightweight view over one grid cell; all state lives in the grid's cell store
 public abstract class Blocks {
-    protected boolean isOwned;
-    protected transient Player owner;
+    protected transient Grid grid;
     private Position position;
-    private Structures structure;
-    private Units units;
+    private transient int cell;
 
-    public Blocks(Position position) {
+    public Blocks(Grid grid, Position position) {
+        this.grid = grid;
         this.position = position;
+        this.cell = grid.getCellIndex(position.getX(), position.getY());
     }
 
     public boolean isOwned() {
-        return owner != null;
+        return grid.getOwnerId(cell) != 0;
     }
 
     public Player getOwner() {
-        return owner;
+        return grid.getOwner(cell);
     }
 
     public void setOwner(Player owner) {
-        this.owner = owner;
-        this.isOwned = (owner != null);
+        grid.setOwner(cell, owner);
     }
 
     public Position getPosition() {
         return position;
     }
 
-    public void setPosition(Position position) {
-        this.position = position;
+    public int getCellIndex() {
+        return cell;
     }
 
     public void setUnit(Units unit) {
-        this.units = unit;
+        grid.placeUnit(cell, unit);
     }
 
     public Units getUnit() {
-        return units;
+        return grid.getUnit(cell);
     }
 
     public void removeUnit() {
-        this.units = null;
+        grid.placeUnit(cell, null);
     }
 
     public Structures getStructure() {
-        return structure;
+        return grid.getStructure(cell);
     }
 
     public void setStructure(Structures structure) {
-        this.structure = structure;
+        grid.placeStructure(cell, structure);
     }
 
     public abstract boolean canBuildStructure();
 
-    public abstract int getGoldPerTurn();
+    public byte getTerrainKind() {
+        return grid.getTerrainKind(cell);
+    }
 
-    public abstract int getFoodPerTurn();
+    public int getGoldPerTurn() {
+        return isOwned() ? Terrain.goldYield(getTerrainKind()) : 0;
+    }
+
+    public int getFoodPerTurn() {
+        return isOwned() ? Terrain.foodYield(getTerrainKind()) : 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Blocks)) return false;
+        Blocks other = (Blocks) o;
+        return grid == other.grid && position.equals(other.position);
+    }
+
+    @Override
+    public int hashCode() {
+        return position.hashCode();
+    }
 }
@@ -1,26 +1,12 @@
 package Blocks;
 
+import Grid.Grid;
 import Grid.Position;
-import RealmWar.Player;
 
 public class ForestBlock extends Blocks {
 
-    private boolean forestDestroyed = false;
-
-    public ForestBlock(Position position) {
-        super(position);
-    }
-
-    public void setOwner(Player owner) {
-        this.owner = owner;
-    }
-
-    public Player getOwner() {
-        return super.getOwner();
-    }
-
-    public boolean isOwned() {
-        return owner != null;
+    public ForestBlock(Grid grid, Position position) {
+        super(grid, position);
     }
 
     @Override
@@ -28,21 +14,11 @@ public class ForestBlock extends Blocks {
         return true;
     }
 
-    @Override
-    public int getGoldPerTurn() {
-        return 0;
-    }
-
-    @Override
-    public int getFoodPerTurn() {
-        return (isOwned() && !forestDestroyed) ? 5 : 0;
-    }
-
     public void destroyForest() {
-        forestDestroyed = true;
+        grid.destroyForest(getCellIndex());
     }
 
     public boolean hasForest() {
-        return !forestDestroyed;
+        return !grid.isForestDestroyed(getCellIndex());
     }
 }
@@ -1,38 +1,16 @@
 package Blocks;
 
+import Grid.Grid;
 import Grid.Position;
-import RealmWar.Player;
 
 public class VoidBlock extends Blocks {
 
-    public VoidBlock(Position position) {
-        super(position);
-    }
-
-    public void setOwner(Player owner) {
-        this.owner = owner;
-    }
-
-    public Player getOwner() {
-        return super.getOwner();
-    }
-
-    public boolean isOwned() {
-        return getOwner() != null;
+    public VoidBlock(Grid grid, Position position) {
+        super(grid, position);
     }
 
     @Override
     public boolean canBuildStructure() {
         return false;
     }
-
-    @Override
-    public int getGoldPerTurn() {
-        return 0;
-    }
-
-    @Override
-    public int getFoodPerTurn() {
-        return 0;
-    }
 }
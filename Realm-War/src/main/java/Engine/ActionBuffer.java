@@ -0,0 +1,73 @@
+package Engine;
+
+import java.util.Arrays;
+
+// Growable list of packed actions (see Actions). Kept and cleared between calls, so
+// generating actions allocates nothing once the buffer has grown to size.
+public final class ActionBuffer {
+    private long[] actions;
+    private int size;
+
+    public ActionBuffer() {
+        this(64);
+    }
+
+    public ActionBuffer(int capacity) {
+        actions = new long[Math.max(1, capacity)];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(long action) {
+        if (size == actions.length)
+            actions = Arrays.copyOf(actions, size * 2);
+        actions[size++] = action;
+    }
+
+    public long get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+        return actions[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long action) {
+        for (int i = 0; i < size; i++) {
+            if (actions[i] == action)
+                return true;
+        }
+        return false;
+    }
+
+    // Removes by moving the last action into the hole; order is not kept
+    public long swapRemove(int index) {
+        long action = get(index);
+        actions[index] = actions[--size];
+        return action;
+    }
+
+    public void addAll(ActionBuffer other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.actions[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(Actions.toString(actions[i]));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,120 @@
+package Engine;
+
+import Grid.Grid;
+import Grid.PathFinder;
+import Grid.Position;
+import Grid.Territory;
+import RealmWar.Player;
+import Structures.Structures;
+import Units.UnitType;
+import Units.Units;
+
+// Lists every legal action of the current player into an ActionBuffer, using the same checks
+// as RulesEngine. Works on cell indexes and cost tables only, so it allocates nothing and is
+// cheap enough to call for every node of a search.
+//
+// Not thread safe: it uses the grid's path finder. Use one generator per thread and per game.
+public final class ActionGenerator {
+
+    // Building costs by type, read once from throwaway instances
+    private static final int[] BUILD_COST = new int[Actions.STRUCTURE_TYPES];
+
+    static {
+        Player nobody = new Player("", 0);
+        for (int type = 0; type < Actions.STRUCTURE_TYPES; type++) {
+            BUILD_COST[type] = Actions.newStructure(type, nobody).getBuildingCost();
+        }
+    }
+
+    // Everything the current player may do; always ends with END_TURN
+    public void generate(RulesEngine engine, ActionBuffer out) {
+        Actions.checkGrid(engine.getGrid());
+        out.clear();
+        if (!engine.isGameOver()) {
+            Grid grid = engine.getGrid();
+            Player player = engine.getCurrentPlayer();
+            Territory territory = player.getTerritory();
+            for (int cell = territory.nextCell(0); cell >= 0; cell = territory.nextCell(cell + 1)) {
+                addCellActions(grid, player, cell, out);
+            }
+            for (Units unit : player.getUnits()) {
+                addUnitActions(grid, player, unit, out);
+            }
+        }
+        out.add(Actions.END_TURN_ACTION);
+    }
+
+    // Only the actions on or from one cell, without END_TURN: what the gui offers for a click
+    public void generate(RulesEngine engine, int cell, ActionBuffer out) {
+        Actions.checkGrid(engine.getGrid());
+        out.clear();
+        if (engine.isGameOver())
+            return;
+        Grid grid = engine.getGrid();
+        Player player = engine.getCurrentPlayer();
+        if (player.getTerritory().contains(cell))
+            addCellActions(grid, player, cell, out);
+        Units unit = grid.getUnit(cell);
+        if (unit != null && unit.getOwner() == player)
+            addUnitActions(grid, player, unit, out);
+    }
+
+    // Upgrade, build and train on one of the player's cells
+    private void addCellActions(Grid grid, Player player, int cell, ActionBuffer out) {
+        Structures structure = grid.getStructure(cell);
+        if (structure != null) {
+            if (structure.getOwner() == player && structure.getCurrentLevel() < structure.getMaxLevel()
+                    && player.getGold() >= structure.levelUpCost())
+                out.add(Actions.upgrade(cell));
+            return;
+        }
+        if (grid.getUnit(cell) != null || grid.isVoid(cell))
+            return;
+        int gold = player.getGold();
+        for (int type = 0; type < Actions.STRUCTURE_TYPES; type++) {
+            if (gold >= BUILD_COST[type])
+                out.add(Actions.build(type, cell));
+        }
+        for (int type = 0; type < Actions.UNIT_TYPES; type++) {
+            UnitType unitType = UnitType.byId(type);
+            if (player.canAddUnit(unitType.getPayment(), unitType.getRation(), unitType.getUnitSpace()))
+                out.add(Actions.train(type, cell));
+        }
+    }
+
+    // Moves within reach and attacks within range
+    private void addUnitActions(Grid grid, Player player, Units unit, ActionBuffer out) {
+        Position at = unit.getPosition();
+        int x0 = at.getX();
+        int y0 = at.getY();
+        int from = grid.getCellIndex(x0, y0);
+
+        PathFinder pathFinder = grid.getPathFinder();
+        int reachable = pathFinder.findReachable(unit);
+        for (int i = 0; i < reachable; i++) {
+            int cell = pathFinder.getResultCell(i);
+            if (cell != from)
+                out.add(Actions.move(from, cell));
+        }
+
+        // The diamond of Units.isInRange, clipped to the map
+        int range = unit.getAttackRange();
+        for (int dy = -range; dy <= range; dy++) {
+            int y = y0 + dy;
+            if (y < 0 || y >= grid.getHeight())
+                continue;
+            int reach = range - Math.abs(dy);
+            for (int x = Math.max(0, x0 - reach); x <= Math.min(grid.getWidth() - 1, x0 + reach); x++) {
+                int cell = grid.getCellIndex(x, y);
+                Units other = grid.getUnit(cell);
+                if (other != null && other.getOwner() != player) {
+                    out.add(Actions.attack(from, cell));
+                    continue;
+                }
+                Structures structure = grid.getStructure(cell);
+                if (structure != null && structure.getOwner() != null && structure.getOwner() != player)
+                    out.add(Actions.attack(from, cell));
+            }
+        }
+    }
+}
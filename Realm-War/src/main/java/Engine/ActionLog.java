@@ -0,0 +1,8 @@
+package Engine;
+
+// Told about every action the engine has applied, as a packed Actions long: player actions
+// once they succeed, END_TURN when a turn ends and COLLECT_RESOURCES on each resource tick.
+// Replaying the same longs in order on the same starting state gives the same game.
+public interface ActionLog {
+    void record(long action);
+}
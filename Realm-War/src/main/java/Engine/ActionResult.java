@@ -0,0 +1,34 @@
+package Engine;
+
+// Outcome of a player action, with the message the GUI shows for it
+public enum ActionResult {
+    OK("Done"),
+    GAME_OVER("The game is over!"),
+    INVALID_POSITION("Invalid position!"),
+    NOT_OWNED("This block is not yours!"),
+    NO_UNIT("No valid unit selected!"),
+    OUT_OF_MOVEMENT_RANGE("Target is out of movement range!"),
+    OUT_OF_RANGE("Target is out of range!"),
+    NO_TARGET("No valid enemy target at this position!"),
+    CANNOT_BUILD("Can't build a structure here!"),
+    OCCUPIED("You can only build structure or train unit on each block!"),
+    NOT_ENOUGH_RESOURCES("Not enough resources to build!"),
+    NOT_ENOUGH_UNIT_RESOURCES("Not enough resources or unit space!"),
+    NO_STRUCTURE("No owned structure at this position!"),
+    MAX_LEVEL("Structure is already at max level!"),
+    NOT_ENOUGH_GOLD("Not enough gold to upgrade!");
+
+    private final String message;
+
+    ActionResult(String message) {
+        this.message = message;
+    }
+
+    public boolean isSuccess() {
+        return this == OK;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,136 @@
+package Engine;
+
+import Grid.Grid;
+import Grid.Position;
+import RealmWar.Player;
+import Structures.Structures;
+import Units.UnitType;
+import Units.Units;
+
+// Player actions packed into a long, addressed by cell index so they can be replayed on any
+// fork of the same game:
+//   bits 0-3 kind, 4-7 structure or unit type, 8-35 from cell + 1, 36-63 to cell + 1
+// Unused cells are stored as 0, so END_TURN is the all-zero action.
+public final class Actions {
+
+    public static final int END_TURN = 0;
+    public static final int BUILD = 1;
+    public static final int TRAIN = 2;
+    public static final int MOVE = 3;
+    public static final int ATTACK = 4;
+    public static final int UPGRADE = 5;
+    // Resource tick of the game clock; not a player action, but journals replay it
+    public static final int COLLECT_RESOURCES = 6;
+
+    // Structure types for BUILD are Structures type ids
+    public static final int STRUCTURE_TYPES = Structures.TYPES;
+
+    // Unit types for TRAIN are UnitType ids
+    public static final int UNIT_TYPES = UnitType.count();
+
+    public static final long END_TURN_ACTION = 0L;
+    public static final long COLLECT_RESOURCES_ACTION = encode(COLLECT_RESOURCES, 0, -1, -1);
+
+    private static final int CELL_BITS = 28;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+    // Largest grid the encoding can address; there is no room in a long for wider cells
+    public static final int MAX_CELLS = (int) CELL_MASK;
+
+    private static final String[] KIND_NAMES = {"END_TURN", "BUILD", "TRAIN", "MOVE", "ATTACK", "UPGRADE",
+            "COLLECT_RESOURCES"};
+
+    private Actions() {
+    }
+
+    // Whether every cell of grid fits the encoding
+    public static boolean canAddress(Grid grid) {
+        return (long) grid.getWidth() * grid.getHeight() <= MAX_CELLS;
+    }
+
+    // For the places that build packed actions: larger cell indexes would wrap silently
+    public static void checkGrid(Grid grid) {
+        if (!canAddress(grid))
+            throw new IllegalArgumentException("Grid " + grid.getWidth() + "x" + grid.getHeight()
+                    + " has more than " + MAX_CELLS + " cells, too many for packed actions");
+    }
+
+    public static long encode(int kind, int type, int from, int to) {
+        return kind | (long) type << 4 | (long) (from + 1) << 8 | (long) (to + 1) << (8 + CELL_BITS);
+    }
+
+    public static long build(int type, int cell) {
+        return encode(BUILD, type, -1, cell);
+    }
+
+    public static long train(int type, int cell) {
+        return encode(TRAIN, type, -1, cell);
+    }
+
+    public static long move(int from, int to) {
+        return encode(MOVE, 0, from, to);
+    }
+
+    public static long attack(int from, int to) {
+        return encode(ATTACK, 0, from, to);
+    }
+
+    public static long upgrade(int cell) {
+        return encode(UPGRADE, 0, -1, cell);
+    }
+
+    public static int kind(long action) {
+        return (int) (action & 0xF);
+    }
+
+    public static int type(long action) {
+        return (int) (action >>> 4 & 0xF);
+    }
+
+    // Cell the acting unit stands on, or -1
+    public static int from(long action) {
+        return (int) (action >>> 8 & CELL_MASK) - 1;
+    }
+
+    // Cell acted on, or -1
+    public static int to(long action) {
+        return (int) (action >>> (8 + CELL_BITS) & CELL_MASK) - 1;
+    }
+
+    public static Structures newStructure(int type, Player owner) {
+        return Structures.create(type, owner);
+    }
+
+    public static Units newUnit(int type, Player owner, Position position) {
+        return UnitType.byId(type).create(owner, position);
+    }
+
+    // Plays the action for the current player. END_TURN and COLLECT_RESOURCES are left to the
+    // caller, who decides what ending a turn means (timer or not).
+    public static ActionResult apply(RulesEngine engine, long action) {
+        Grid grid = engine.getGrid();
+        Player player = engine.getCurrentPlayer();
+        int from = from(action);
+        int to = to(action);
+        switch (kind(action)) {
+            case BUILD:
+                return engine.build(grid.getPosition(to), newStructure(type(action), player));
+            case TRAIN:
+                return engine.train(newUnit(type(action), player, grid.getPosition(to)));
+            case MOVE:
+                return engine.move(grid.getUnit(from), grid.getPosition(to));
+            case ATTACK:
+                return engine.attack(grid.getUnit(from), grid.getPosition(to));
+            case UPGRADE:
+                return engine.upgrade(grid.getStructure(to));
+            default:
+                return ActionResult.OK;
+        }
+    }
+
+    public static String toString(long action) {
+        int kind = kind(action);
+        if (kind == END_TURN || kind == COLLECT_RESOURCES)
+            return KIND_NAMES[kind];
+        return KIND_NAMES[kind] + "(" + type(action) + ", " + from(action) + " -> " + to(action) + ")";
+    }
+}
@@ -0,0 +1,10 @@
+package Engine;
+
+// Source of game time for the rules engine. All times are in milliseconds of game time.
+public interface GameClock {
+
+    long now();
+
+    // Runs task every period ms, first after initialDelay ms. Tasks never run concurrently.
+    TimerHandle scheduleAtFixedRate(Runnable task, long initialDelay, long period);
+}
@@ -0,0 +1,76 @@
+package Engine;
+
+import Grid.Position;
+import RealmWar.Player;
+import Structures.Structures;
+import Units.Units;
+
+// Something that happened in the game, for clients (GUI, logs, AI) to react to
+public class GameEvent {
+
+    public enum Type {
+        TURN_STARTED,
+        RESOURCES_COLLECTED,
+        STRUCTURE_BUILT,
+        STRUCTURE_UPGRADED,
+        UNIT_TRAINED,
+        UNIT_MOVED,
+        UNIT_ATTACKED,
+        UNIT_DESTROYED,
+        STRUCTURE_ATTACKED,
+        STRUCTURE_DESTROYED,
+        PLAYER_DEFEATED,
+        GAME_WON
+    }
+
+    private final Type type;
+    private final Player player;
+    private final Position position;
+    private final Units unit;
+    private final Structures structure;
+    private final int gold;
+    private final int food;
+
+    public GameEvent(Type type, Player player, Position position, Units unit, Structures structure,
+                     int gold, int food) {
+        this.type = type;
+        this.player = player;
+        this.position = position;
+        this.unit = unit;
+        this.structure = structure;
+        this.gold = gold;
+        this.food = food;
+    }
+
+    public GameEvent(Type type, Player player) {
+        this(type, player, null, null, null, 0, 0);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public Units getUnit() {
+        return unit;
+    }
+
+    public Structures getStructure() {
+        return structure;
+    }
+
+    public int getGold() {
+        return gold;
+    }
+
+    public int getFood() {
+        return food;
+    }
+}
@@ -0,0 +1,5 @@
+package Engine;
+
+public interface GameEventListener {
+    void onEvent(GameEvent event);
+}
@@ -0,0 +1,55 @@
+package Engine;
+
+import java.util.concurrent.Executor;
+
+// Wall-clock game time on a timing wheel shared by every game in the process. Tasks are
+// handed to the dispatcher (e.g. the Swing event thread) so they run on the same thread as
+// player actions.
+public class RealTimeClock implements GameClock {
+
+    private final TimingWheel wheel;
+    private final Executor dispatcher;
+    private final long start;
+
+    public RealTimeClock(Executor dispatcher) {
+        this(TimingWheel.shared(), dispatcher);
+    }
+
+    public RealTimeClock(TimingWheel wheel, Executor dispatcher) {
+        this.wheel = wheel;
+        this.dispatcher = dispatcher;
+        this.start = wheel.now();
+    }
+
+    @Override
+    public long now() {
+        return wheel.now() - start;
+    }
+
+    @Override
+    public TimerHandle scheduleAtFixedRate(Runnable task, long initialDelay, long period) {
+        Handle handle = new Handle();
+        handle.timeout = wheel.scheduleAtFixedRate(() -> dispatcher.execute(() -> {
+            if (!handle.cancelled)
+                task.run();
+        }), initialDelay, period);
+        return handle;
+    }
+
+    // Also stops ticks already handed to the dispatcher but not yet run
+    private static final class Handle implements TimerHandle {
+        volatile TimerHandle timeout;
+        volatile boolean cancelled;
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            timeout.cancel();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package Engine;
+
+import Blocks.Blocks;
+import Blocks.VoidBlock;
+import Grid.ForkContext;
+import Grid.Grid;
+import Grid.Position;
+import RealmWar.Player;
+import Structures.Structures;
+import Units.Units;
+import Utils.GameLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// All game rules, with no Swing in sight. Actions report what happened through their
+// ActionResult and through events, so the GUI, batch runs and AI all drive the same engine.
+public class RulesEngine {
+
+    public static final int TURN_DURATION = 30;
+    public static final long TICK_MILLIS = 1000;
+    public static final long RESOURCE_PERIOD_MILLIS = 3000;
+
+    private final List<Player> players;
+    private final Grid grid;
+    private final List<GameEventListener> listeners = new ArrayList<>();
+    private ActionLog actionLog;
+    private int currentPlayerIndex;
+    private int remainingTurnTime = TURN_DURATION;
+    private GameClock clock;
+    private TimerHandle turnTimer;
+    private TimerHandle resourceTimer;
+
+    public RulesEngine(List<Player> players, Grid grid) {
+        this.players = players;
+        this.grid = grid;
+    }
+
+    // Independent copy of the whole game for search and what-if play (see Grid.fork for
+    // the cost). Turn state comes along; clock, listeners and action log do not.
+    public RulesEngine fork() {
+        ForkContext context = new ForkContext();
+        List<Player> forkedPlayers = new ArrayList<>(players.size());
+        for (Player player : players) {
+            forkedPlayers.add(context.player(player));
+        }
+        RulesEngine copy = new RulesEngine(forkedPlayers, grid.fork(context));
+        copy.currentPlayerIndex = currentPlayerIndex;
+        copy.remainingTurnTime = remainingTurnTime;
+        return copy;
+    }
+
+    public void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    // At most one, e.g. a journal; null to stop recording. Only for grids packed actions can address.
+    public void setActionLog(ActionLog actionLog) {
+        if (actionLog != null)
+            Actions.checkGrid(grid);
+        this.actionLog = actionLog;
+    }
+
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public Player getCurrentPlayer() {
+        return players.get(currentPlayerIndex);
+    }
+
+    public int getCurrentPlayerIndex() {
+        return currentPlayerIndex;
+    }
+
+    public void setCurrentPlayerIndex(int index) {
+        this.currentPlayerIndex = index;
+    }
+
+    public int getRemainingTurnTime() {
+        return remainingTurnTime;
+    }
+
+    public void resetTurnTime() {
+        remainingTurnTime = TURN_DURATION;
+    }
+
+    // Called on every action and search step, so a plain loop rather than a stream
+    public boolean isGameOver() {
+        int standing = 0;
+        for (int i = 0; i < players.size(); i++) {
+            if (!players.get(i).isDefeated() && ++standing > 1)
+                return false;
+        }
+        return true;
+    }
+
+    // The last player standing, or null while the game is still running
+    public Player getWinner() {
+        Player winner = null;
+        for (Player player : players) {
+            if (!player.isDefeated()) {
+                if (winner != null)
+                    return null;
+                winner = player;
+            }
+        }
+        return winner;
+    }
+
+    // --- Clock ---
+
+    // Turn expiry and resource collection both run off the clock, so a VirtualClock replays
+    // a match exactly and as fast as it can be advanced
+    public void start(GameClock clock) {
+        stop();
+        this.clock = clock;
+        turnTimer = clock.scheduleAtFixedRate(this::tickTurnTimer, TICK_MILLIS, TICK_MILLIS);
+        resourceTimer = clock.scheduleAtFixedRate(this::collectResources, 0, RESOURCE_PERIOD_MILLIS);
+    }
+
+    public void stop() {
+        if (turnTimer != null) {
+            turnTimer.cancel();
+            turnTimer = null;
+        }
+        if (resourceTimer != null) {
+            resourceTimer.cancel();
+            resourceTimer = null;
+        }
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    // --- Turns and resources ---
+
+    public void nextTurn() {
+        currentPlayerIndex = (currentPlayerIndex + 1) % players.size();
+        GameLog.println("Turn changed to: " + getCurrentPlayer().getName());
+    }
+
+    // A player without a Town Hall is defeated. That is judged as their own turn ends rather than
+    // as the next one starts, so nobody is out before they have had a turn to build one.
+    public void endTurn() {
+        getCurrentPlayer().checkDefeat();
+        nextTurn();
+        remainingTurnTime = TURN_DURATION;
+        Player current = getCurrentPlayer();
+        current.startTurn();
+        GameLog.println("Turn of Player: " + current.getName());
+        record(Actions.END_TURN_ACTION);
+        fire(GameEvent.Type.TURN_STARTED, current, null, null, null, 0, 0);
+    }
+
+    // One second of turn time; the turn passes on when it runs out
+    public void tickTurnTimer() {
+        remainingTurnTime--;
+        if (remainingTurnTime <= 0) {
+            endTurn();
+        }
+    }
+
+    public void collectResources() {
+        record(Actions.COLLECT_RESOURCES_ACTION);
+        for (Player player : players) {
+            if (!player.isDefeated()) {
+                int goldBefore = player.getGold();
+                int foodBefore = player.getFood();
+                player.collectResources();
+                fire(GameEvent.Type.RESOURCES_COLLECTED, player, null, null, null,
+                        player.getGold() - goldBefore, player.getFood() - foodBefore);
+            }
+        }
+    }
+
+    // --- Player actions, always on behalf of the current player ---
+
+    public ActionResult build(Position position, Structures structure) {
+        if (isGameOver())
+            return ActionResult.GAME_OVER;
+        if (position == null || !grid.isValidPosition(position.getX(), position.getY()))
+            return ActionResult.INVALID_POSITION;
+        Blocks block = grid.getBlock(position);
+        if (block.getOwner() != getCurrentPlayer())
+            return ActionResult.NOT_OWNED;
+        if (!block.canBuildStructure())
+            return ActionResult.CANNOT_BUILD;
+        if (block.getStructure() != null || block.getUnit() != null)
+            return ActionResult.OCCUPIED;
+
+        Player player = getCurrentPlayer();
+        if (!player.canBuildStructure(structure))
+            return ActionResult.NOT_ENOUGH_RESOURCES;
+
+        grid.setStructure(position, structure);
+        player.addStructure(structure);
+        player.generateResources();
+        record(Actions.build(structure.getTypeId(), cellOf(position)));
+        fire(GameEvent.Type.STRUCTURE_BUILT, player, position, null, structure, 0, 0);
+        return ActionResult.OK;
+    }
+
+    public ActionResult train(Units unit) {
+        if (isGameOver())
+            return ActionResult.GAME_OVER;
+        Position position = unit.getPosition();
+        if (position == null || !grid.isValidPosition(position.getX(), position.getY()))
+            return ActionResult.INVALID_POSITION;
+        Blocks block = grid.getBlock(position);
+        if (block instanceof VoidBlock)
+            return ActionResult.INVALID_POSITION;
+        if (block.getOwner() != getCurrentPlayer())
+            return ActionResult.NOT_OWNED;
+        if (block.getStructure() != null || block.getUnit() != null)
+            return ActionResult.OCCUPIED;
+
+        Player player = getCurrentPlayer();
+        if (!player.addUnit(unit))
+            return ActionResult.NOT_ENOUGH_UNIT_RESOURCES;
+
+        grid.setUnit(unit);
+        player.generateResources();
+        record(Actions.train(unit.getType().getId(), cellOf(position)));
+        fire(GameEvent.Type.UNIT_TRAINED, player, position, unit, null, 0, 0);
+        return ActionResult.OK;
+    }
+
+    public ActionResult move(Units unit, Position target) {
+        if (isGameOver())
+            return ActionResult.GAME_OVER;
+        if (unit == null || !unit.getOwner().equals(getCurrentPlayer()) || !isOnGrid(unit))
+            return ActionResult.NO_UNIT;
+        if (target == null || !grid.isValidPosition(target.getX(), target.getY()))
+            return ActionResult.INVALID_POSITION;
+
+        // Moving onto an enemy fights it, so remember who was there
+        Units defender = grid.getUnitAt(target);
+        int from = cellOf(unit.getPosition());
+        if (!grid.moveUnit(unit, target))
+            return ActionResult.OUT_OF_MOVEMENT_RANGE;
+        record(Actions.move(from, cellOf(target)));
+
+        fire(GameEvent.Type.UNIT_MOVED, unit.getOwner(), target, unit, null, 0, 0);
+        if (defender != null && !defender.isAlive())
+            fire(GameEvent.Type.UNIT_DESTROYED, defender.getOwner(), target, defender, null, 0, 0);
+        if (!unit.isAlive())
+            fire(GameEvent.Type.UNIT_DESTROYED, unit.getOwner(), unit.getPosition(), unit, null, 0, 0);
+        return ActionResult.OK;
+    }
+
+    public ActionResult attack(Units attacker, Position targetPos) {
+        if (isGameOver())
+            return ActionResult.GAME_OVER;
+        if (attacker == null || !attacker.getOwner().equals(getCurrentPlayer()) || !isOnGrid(attacker))
+            return ActionResult.NO_UNIT;
+        if (targetPos == null || !grid.isValidPosition(targetPos.getX(), targetPos.getY()))
+            return ActionResult.INVALID_POSITION;
+
+        Units targetUnit = grid.getUnitAt(targetPos);
+        Structures targetStructure = grid.getStructure(targetPos);
+
+        if (targetUnit != null && !targetUnit.getOwner().equals(attacker.getOwner())) {
+            if (!attacker.isInRange(targetPos))
+                return ActionResult.OUT_OF_RANGE;
+            record(Actions.attack(cellOf(attacker.getPosition()), cellOf(targetPos)));
+            attackUnit(attacker, targetUnit, targetPos);
+            return ActionResult.OK;
+        }
+        if (targetStructure != null && targetStructure.getOwner() != null
+                && !targetStructure.getOwner().equals(attacker.getOwner())) {
+            if (!attacker.isInRange(targetPos))
+                return ActionResult.OUT_OF_RANGE;
+            record(Actions.attack(cellOf(attacker.getPosition()), cellOf(targetPos)));
+            attackStructure(attacker, targetStructure, targetPos);
+            return ActionResult.OK;
+        }
+        return ActionResult.NO_TARGET;
+    }
+
+    // Attack on a structure whose cell isn't known to the caller
+    public ActionResult attack(Units attacker, Structures targetStructure) {
+        if (attacker == null || targetStructure == null)
+            return ActionResult.NO_TARGET;
+        return attack(attacker, findStructure(targetStructure));
+    }
+
+    public ActionResult upgrade(Structures structure) {
+        if (isGameOver())
+            return ActionResult.GAME_OVER;
+        Player player = getCurrentPlayer();
+        if (structure == null || !player.equals(structure.getOwner()))
+            return ActionResult.NO_STRUCTURE;
+        if (structure.getCurrentLevel() >= structure.getMaxLevel())
+            return ActionResult.MAX_LEVEL;
+        int cost = structure.levelUpCost();
+        if (player.getGold() < cost)
+            return ActionResult.NOT_ENOUGH_GOLD;
+
+        structure.levelUp();
+        player.spendResources(cost, 0);
+        record(Actions.upgrade(grid.getStructureCell(structure)));
+        fire(GameEvent.Type.STRUCTURE_UPGRADED, player, null, null, structure, 0, 0);
+        return ActionResult.OK;
+    }
+
+    private void attackUnit(Units attacker, Units target, Position targetPos) {
+        target.takeDamage(attacker.getAttackPower());
+        attacker.takeDamage(target.getAttackPower());
+
+        GameLog.println(attacker.getClass().getSimpleName() + " attacked " +
+                target.getClass().getSimpleName());
+        fire(GameEvent.Type.UNIT_ATTACKED, attacker.getOwner(), targetPos, target, null, 0, 0);
+
+        if (!target.isAlive()) {
+            grid.removeUnit(target);
+            target.getOwner().removeUnit(target);
+            fire(GameEvent.Type.UNIT_DESTROYED, target.getOwner(), targetPos, target, null, 0, 0);
+        }
+        if (!attacker.isAlive()) {
+            killUnit(attacker);
+        }
+    }
+
+    // Structures hit back with their remaining durability
+    private void attackStructure(Units attacker, Structures target, Position targetPos) {
+        target.takeDamage(attacker.getAttackPower());
+        attacker.takeDamage(target.getDurability());
+        fire(GameEvent.Type.STRUCTURE_ATTACKED, attacker.getOwner(), targetPos, attacker, target, 0, 0);
+
+        if (!attacker.isAlive()) {
+            killUnit(attacker);
+        }
+        if (!target.isAlive()) {
+            Player owner = target.getOwner();
+            grid.destroyStructure(targetPos);
+            owner.removeStructure(target);
+            fire(GameEvent.Type.STRUCTURE_DESTROYED, owner, targetPos, null, target, 0, 0);
+
+            // Losing one Town Hall only matters if it was the last
+            if (target.getTypeId() == Structures.TOWN_HALL
+                    && grid.getStructureRegistry().count(owner, Structures.TOWN_HALL) == 0) {
+                owner.setDefeated(true);
+                fire(GameEvent.Type.PLAYER_DEFEATED, owner, targetPos, null, target, 0, 0);
+                Player winner = getWinner();
+                if (winner != null) {
+                    fire(GameEvent.Type.GAME_WON, winner, null, null, null, 0, 0);
+                }
+            }
+        }
+    }
+
+    private void killUnit(Units unit) {
+        grid.removeUnit(unit);
+        unit.getOwner().removeUnit(unit);
+        fire(GameEvent.Type.UNIT_DESTROYED, unit.getOwner(), unit.getPosition(), unit, null, 0, 0);
+    }
+
+    // False for a unit that has since been killed or merged into another, which callers may
+    // still hold on to; it would otherwise act from a cell it no longer stands on
+    private boolean isOnGrid(Units unit) {
+        return grid.getUnitAt(unit.getPosition()) == unit;
+    }
+
+    private int cellOf(Position position) {
+        return grid.getCellIndex(position.getX(), position.getY());
+    }
+
+    private void record(long action) {
+        if (actionLog != null)
+            actionLog.record(action);
+    }
+
+    private Position findStructure(Structures structure) {
+        int cell = grid.getStructureCell(structure);
+        return cell >= 0 ? grid.getPosition(cell) : null;
+    }
+
+    private void fire(GameEvent.Type type, Player player, Position position, Units unit,
+                      Structures structure, int gold, int food) {
+        if (listeners.isEmpty())
+            return;
+        GameEvent event = new GameEvent(type, player, position, unit, structure, gold, food);
+        for (GameEventListener listener : new ArrayList<>(listeners)) {
+            listener.onEvent(event);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package Engine;
+
+public interface TimerHandle {
+
+    void cancel();
+
+    boolean isCancelled();
+}
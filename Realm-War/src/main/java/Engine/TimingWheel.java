@@ -0,0 +1,167 @@
+package Engine;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Hashed timing wheel: one daemon thread serves the timers of every game in the process.
+// Scheduling and cancelling are O(1) and never create threads. Tasks run on the wheel
+// thread, so they must be short; RealTimeClock hands them on to a dispatcher.
+public final class TimingWheel {
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final TimingWheel SHARED =
+            new TimingWheel(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, "realmwar-timer");
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    public static TimingWheel shared() {
+        return SHARED;
+    }
+
+    public TimingWheel(long tickMillis, int wheelSize, String threadName) {
+        if (tickMillis <= 0)
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        if (Integer.bitCount(wheelSize) != 1)
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Millis since the wheel started
+    public long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public TimerHandle schedule(Runnable task, long delayMillis) {
+        return add(task, delayMillis, 0);
+    }
+
+    public TimerHandle scheduleAtFixedRate(Runnable task, long initialDelayMillis, long periodMillis) {
+        if (periodMillis <= 0)
+            throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+        return add(task, initialDelayMillis, periodMillis);
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private TimerHandle add(Runnable task, long delayMillis, long periodMillis) {
+        if (!running)
+            throw new IllegalStateException("Timing wheel is shut down");
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(task, deadline, TimeUnit.MILLISECONDS.toNanos(periodMillis));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long wakeAt = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = wakeAt - System.nanoTime()) > 0 && running) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            transferPending();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    // Only the worker touches the buckets, so new and rescheduled timeouts queue up here
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled)
+                continue;
+            long due = Math.max(tick, (timeout.deadline + tickNanos - 1) / tickNanos);
+            timeout.rounds = (due - tick) / buckets.length;
+            int index = (int) (due & mask);
+            timeout.next = buckets[index];
+            if (timeout.next != null)
+                timeout.next.prev = timeout;
+            timeout.prev = null;
+            buckets[index] = timeout;
+        }
+    }
+
+    private void expire(Timeout head) {
+        Timeout timeout = head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.cancelled) {
+                unlink(timeout);
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                unlink(timeout);
+                try {
+                    timeout.task.run();
+                } catch (Throwable e) {
+                    // Every game shares this thread, so one game's failure must not stop the others
+                    System.err.println("Timer task failed: " + e);
+                }
+                // Fixed rate: the next deadline follows the last one, not the time we ran
+                if (timeout.period > 0 && !timeout.cancelled) {
+                    timeout.deadline += timeout.period;
+                    pending.add(timeout);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[(int) (tick & mask)] = timeout.next;
+        }
+        if (timeout.next != null)
+            timeout.next.prev = timeout.prev;
+        timeout.next = null;
+        timeout.prev = null;
+    }
+
+    private static final class Timeout implements TimerHandle {
+        final Runnable task;
+        final long period;
+        long deadline;
+        long rounds;
+        Timeout next;
+        Timeout prev;
+        volatile boolean cancelled;
+
+        Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        // Cancelled timeouts are dropped the next time the wheel passes their bucket
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package Engine;
+
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+
+// Game time that only moves when advance() is called, so a whole match can run as fast as
+// the CPU allows. Tasks due at the same time run in the order they were scheduled, which
+// keeps every run with the same inputs identical.
+public class VirtualClock implements GameClock {
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long now;
+    private long nextSeq;
+
+    @Override
+    public long now() {
+        return now;
+    }
+
+    @Override
+    public TimerHandle scheduleAtFixedRate(Runnable task, long initialDelay, long period) {
+        if (period <= 0)
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        Task t = new Task(task, now + Math.max(0, initialDelay), period, nextSeq++);
+        queue.add(t);
+        return t;
+    }
+
+    // Moves time forward by millis, running everything that falls due on the way
+    public void advance(long millis) {
+        advanceTo(now + millis);
+    }
+
+    public void advanceTo(long time) {
+        runUntil(time, () -> false);
+    }
+
+    // Runs due tasks up to limit, stopping early after any task that makes stop true.
+    // Returns true if it stopped early.
+    public boolean runUntil(long limit, BooleanSupplier stop) {
+        while (!queue.isEmpty() && queue.peek().due <= limit) {
+            Task t = queue.poll();
+            if (t.cancelled)
+                continue;
+            now = t.due;
+            t.task.run();
+            if (!t.cancelled) {
+                t.due += t.period;
+                t.seq = nextSeq++;
+                queue.add(t);
+            }
+            if (stop.getAsBoolean())
+                return true;
+        }
+        now = Math.max(now, limit);
+        return false;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private static final class Task implements TimerHandle, Comparable<Task> {
+        final Runnable task;
+        final long period;
+        long due;
+        long seq;
+        boolean cancelled;
+
+        Task(Runnable task, long due, long period, long seq) {
+            this.task = task;
+            this.due = due;
+            this.period = period;
+            this.seq = seq;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = Long.compare(due, o.due);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
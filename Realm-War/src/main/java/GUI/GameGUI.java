@@ -1,6 +1,10 @@
 package GUI;
 
 import Blocks.*;
+import Engine.ActionBuffer;
+import Engine.ActionResult;
+import Engine.Actions;
+import Engine.GameEvent;
 import Grid.*;
 import RealmWar.*;
 import Structures.*;
@@ -13,6 +17,10 @@ import java.io.File;
 import javax.swing.JOptionPane;
 
 public class GameGUI extends JFrame {
+    // Cell background by Terrain kind: empty, forest, void, cut forest
+    private static final Color[] TERRAIN_COLORS = {
+            Color.LIGHT_GRAY, new Color(34, 139, 34), Color.BLACK, new Color(139, 69, 19)
+    };
     private final JPanel controlPanel;
     private Game game;
     private GameController gameController;
@@ -39,6 +47,62 @@ public class GameGUI extends JFrame {
         this.gameController = gameController;
         controlPanel = new JPanel();
         initializeUI();
+        gameController.getEngine().addListener(this::onGameEvent);
+    }
+
+    // Everything the engine reports that the player should see
+    private void onGameEvent(GameEvent event) {
+        switch (event.getType()) {
+            case TURN_STARTED:
+                selectedPosition = null;
+                refresh();
+                break;
+            case RESOURCES_COLLECTED:
+                System.out.println(event.getPlayer().getName() +
+                        " gained " + event.getGold() + " gold and " +
+                        event.getFood() + " food");
+                refresh();
+                if (event.getGold() > 0 || event.getFood() > 0) {
+                    showResourceGain(event.getGold(), event.getFood());
+                }
+                break;
+            case STRUCTURE_ATTACKED:
+                Units attacker = event.getUnit();
+                Structures target = event.getStructure();
+                JOptionPane.showMessageDialog(this,
+                        attacker.getClass().getSimpleName() + " attacked " + target.getClass().getSimpleName() + "\n" +
+                                "Structure HP left: " + target.getDurability() + "\n" +
+                                "Attacker HP left: " + attacker.getHitPoints(),
+                        "Attack Result", JOptionPane.INFORMATION_MESSAGE);
+                break;
+            case UNIT_DESTROYED:
+                System.out.println(event.getUnit().getClass().getSimpleName() + " destroyed!");
+                break;
+            case STRUCTURE_DESTROYED:
+                if (!(event.getStructure() instanceof TownHall)) {
+                    JOptionPane.showMessageDialog(this,
+                            "Structure destroyed!", "Structure", JOptionPane.INFORMATION_MESSAGE);
+                }
+                break;
+            case PLAYER_DEFEATED:
+                JOptionPane.showMessageDialog(this,
+                        "Town Hall destroyed!\n" + event.getPlayer().getName() + " has been defeated!",
+                        "Defeat", JOptionPane.WARNING_MESSAGE);
+                break;
+            case GAME_WON:
+                gameController.stopTimers();
+                JOptionPane.showMessageDialog(this,
+                        "Congratulations, " + event.getPlayer().getName() + " has won the game!",
+                        "Victory", JOptionPane.INFORMATION_MESSAGE);
+                System.exit(0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void showError(ActionResult result) {
+        JOptionPane.showMessageDialog(this, result.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
     }
 
     private void initializeUI() {
@@ -189,7 +253,7 @@ public class GameGUI extends JFrame {
         quickSaveBtn.addActionListener(e -> {
             try {
                 new File("saves").mkdirs();
-                String savePath = "saves/quicksave.json";
+                String savePath = "saves/quicksave.rws";
                 game.saveGame(savePath);
 
                 JOptionPane.showMessageDialog(GameGUI.this,
@@ -251,63 +315,9 @@ public class GameGUI extends JFrame {
         gameBoard.repaint();
     }
 
-    /*private void styleCell(JButton cell, Blocks block) {
-        // Set background color based on block type
-        if (block instanceof EmptyBlock) {
-            cell.setBackground(Color.LIGHT_GRAY);
-        } else if (block instanceof ForestBlock) {
-            cell.setBackground(((ForestBlock) block).hasForest() ?
-                    new Color(34, 139, 34) : new Color(139, 69, 19));
-        } else if (block instanceof VoidBlock) {
-            cell.setBackground(Color.BLACK);
-        }
-
-        // Highlight owned blocks
-        if (block.isOwned()) {
-            Player owner = block.getOwner();
-            if (owner.equals(gameController.getCurrentPlayer())) {
-                cell.setBorder(BorderFactory.createLineBorder(Color.GREEN, 3));
-            } else {
-                cell.setBorder(BorderFactory.createLineBorder(Color.GRAY, 1));
-            }
-        } else {
-            cell.setBorder(BorderFactory.createLineBorder(Color.GRAY, 1));
-        }
-
-        cell.setText("");
-        cell.setIcon(null);
-
-        // Add unit/structure info
-        StringBuilder text = new StringBuilder("<html>");
-
-        if (block.getStructure() != null) {
-            text.append(block.getStructure().getClass().getSimpleName()).append("<br>");
-        }
-
-        if (block.getUnit() != null) {
-            text.append(block.getUnit().getClass().getSimpleName())
-                    .append(" Lv").append(block.getUnit().getLevel())
-                    .append(" HP").append(block.getUnit().getHitPoints())
-                    .append("<br>");
-        }
-
-        text.append("</html>");
-
-        cell.setText(text.toString());
-        cell.setHorizontalTextPosition(JButton.CENTER);
-        cell.setVerticalTextPosition(JButton.CENTER);
-    }*/
-
     private void styleCell(JButton cell, Blocks block) {
-        // Set background color based on block type
-        if (block instanceof EmptyBlock) {
-            cell.setBackground(Color.LIGHT_GRAY);
-        } else if (block instanceof ForestBlock) {
-            cell.setBackground(((ForestBlock) block).hasForest() ?
-                    new Color(34, 139, 34) : new Color(139, 69, 19));
-        } else if (block instanceof VoidBlock) {
-            cell.setBackground(Color.BLACK);
-        }
+        // Set background color based on terrain kind
+        cell.setBackground(TERRAIN_COLORS[block.getTerrainKind()]);
 
         // Highlight owned blocks
         if (block.isOwned()) {
@@ -365,42 +375,51 @@ public class GameGUI extends JFrame {
 
     private void handleCellClick(int x, int y) {
         selectedPosition = new Position(x, y);
-        Blocks block = game.getGrid().getBlock(selectedPosition);
-
-        if (block.isOwned() && block.getOwner().equals(gameController.getCurrentPlayer())) {
-            showBlockActions(block);
-        } else {
-//            JOptionPane.showMessageDialog(this,
-//                    "This block is not yours!", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        // The engine decides what is allowed here; an empty menu is not shown
+        showBlockActions(game.getGrid().getBlock(selectedPosition));
     }
 
     private void showBlockActions(Blocks block) {
         JPopupMenu popupMenu = new JPopupMenu();
 
-        if (block.getUnit() != null && block.getUnit().getOwner().equals(gameController.getCurrentPlayer())) {
+        // Only offer what the rules allow here right now
+        boolean canMove = false, canAttack = false, canBuild = false, canUpgrade = false;
+        ActionBuffer actions = gameController.getActionsAt(selectedPosition);
+        for (int i = 0; i < actions.size(); i++) {
+            switch (Actions.kind(actions.get(i))) {
+                case Actions.MOVE: canMove = true; break;
+                case Actions.ATTACK: canAttack = true; break;
+                case Actions.BUILD: canBuild = true; break;
+                case Actions.UPGRADE: canUpgrade = true; break;
+            }
+        }
+
+        if (canMove) {
             JMenuItem moveItem = new JMenuItem("Move Unit");
             moveItem.addActionListener(e -> showMoveDialog());
             popupMenu.add(moveItem);
+        }
 
+        if (canAttack) {
             JMenuItem attackItem = new JMenuItem("Attack");
             attackItem.addActionListener(e -> showAttackDialog(block.getUnit()));
             popupMenu.add(attackItem);
         }
 
-        if (block.canBuildStructure()) {
+        if (canBuild) {
             JMenuItem buildItem = new JMenuItem("Build Structure");
             buildItem.addActionListener(e -> showBuildDialog());
             popupMenu.add(buildItem);
         }
 
-        if (block.getStructure() != null && block.getStructure().getOwner().equals(gameController.getCurrentPlayer())) {
+        if (canUpgrade) {
             JMenuItem upgradeItem = new JMenuItem("Upgrade Structure");
             upgradeItem.addActionListener(e -> upgradeStructure(block.getStructure()));
             popupMenu.add(upgradeItem);
         }
 
-        popupMenu.show(gameBoard, selectedPosition.getX() * 60, selectedPosition.getY() * 60);
+        if (popupMenu.getComponentCount() > 0)
+            popupMenu.show(gameBoard, selectedPosition.getX() * 60, selectedPosition.getY() * 60);
     }
 
     private void showBuildDialog() {
@@ -456,17 +475,12 @@ public class GameGUI extends JFrame {
     }
 
     private void buildStructure(Structures structure) {
-        Player currentPlayer = gameController.getCurrentPlayer();
-
-        if (currentPlayer.canBuildStructure(structure)) {
-            game.getGrid().setStructure(selectedPosition, structure);
-            currentPlayer.addStructure(structure);
-            currentPlayer.generateResources();
+        ActionResult result = gameController.getEngine().build(selectedPosition, structure);
+        if (result.isSuccess()) {
             updateGameBoard();
             updateGameInfo();
         } else {
-            JOptionPane.showMessageDialog(this,
-                    "Not enough resources to build!", "Error", JOptionPane.ERROR_MESSAGE);
+            showError(result);
         }
     }
 
@@ -517,18 +531,12 @@ public class GameGUI extends JFrame {
     }
 
     private void trainUnit(Units unit) {
-        Player currentPlayer = gameController.getCurrentPlayer();
-
-        if (currentPlayer.addUnit(unit)) {
-            game.getGrid().addUnit(unit);
-            game.getGrid().setUnit(unit);
-            currentPlayer.addUnit(unit);
+        ActionResult result = gameController.getEngine().train(unit);
+        if (result.isSuccess()) {
             updateGameBoard();
             updateGameInfo();
-            currentPlayer.generateResources();
         } else {
-            JOptionPane.showMessageDialog(this,
-                    "Not enough resources or unit space!", "Error", JOptionPane.ERROR_MESSAGE);
+            showError(result);
         }
     }
 
@@ -566,7 +574,12 @@ public class GameGUI extends JFrame {
                 Position target = new Position(x, y);
                 if (game.getGrid().isValidPosition(x, y)) {
                     Position oldPos = unit.getPosition();
-                    game.getGrid().moveUnit(unit, target);
+                    ActionResult result = gameController.getEngine().move(unit, target);
+                    if (!result.isSuccess()) {
+                        JOptionPane.showMessageDialog(dialog,
+                                result.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
                     updateCellsAfterMove(oldPos, target);
                     dialog.dispose();
                 } else {
@@ -631,37 +644,10 @@ public class GameGUI extends JFrame {
                     return;
                 }
 
-                Units targetUnit = game.getGrid().getUnitAt(targetPos);
-                Structures targetStructure = game.getGrid().getStructure(targetPos);
-
-                if ((targetUnit == null || targetUnit.getOwner().equals(attacker.getOwner()))
-                        && (targetStructure == null || targetStructure.getOwner().equals(attacker.getOwner()))) {
+                ActionResult result = gameController.handleAttack(attacker, targetPos);
+                if (!result.isSuccess()) {
                     JOptionPane.showMessageDialog(dialog,
-                            "No valid enemy target at this position!", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                if (targetUnit != null && !targetUnit.getOwner().equals(attacker.getOwner())) {
-                    if (!attacker.isInRange(targetPos)) {
-                        JOptionPane.showMessageDialog(dialog,
-                                "Target unit is out of range!",
-                                "Error", JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    gameController.handleAttack(attacker, targetPos);
-                } else if (targetStructure != null && targetStructure.getOwner() != null &&
-                        !targetStructure.getOwner().equals(attacker.getOwner())) {
-                    if (!attacker.isInRange(targetPos)) {
-                        JOptionPane.showMessageDialog(dialog,
-                                "Target Structure is out of range!",
-                                "Error", JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    gameController.handleStructureAttack(attacker, targetStructure);
-                } else {
-                    JOptionPane.showMessageDialog(dialog,
-                            "You can't attack you're own unit or structure!",
-                            "Error", JOptionPane.ERROR_MESSAGE);
+                            result.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
 
@@ -684,29 +670,17 @@ public class GameGUI extends JFrame {
     }
 
     private void upgradeStructure(Structures structure) {
-        Player currentPlayer = gameController.getCurrentPlayer();
-
-        if (structure.getCurrentLevel() < structure.getMaxLevel()) {
-            int cost = structure.levelUpCost();
-            if (currentPlayer.getGold() >= cost) {
-                structure.levelUp();
-                currentPlayer.spendResources(cost, 0);
-                updateGameBoard();
-                updateGameInfo();
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "Not enough gold to upgrade!", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+        ActionResult result = gameController.getEngine().upgrade(structure);
+        if (result.isSuccess()) {
+            updateGameBoard();
+            updateGameInfo();
         } else {
-            JOptionPane.showMessageDialog(this,
-                    "Structure is already at max level!", "Error", JOptionPane.ERROR_MESSAGE);
+            showError(result);
         }
     }
 
     private void endTurn() {
-        gameController.stopTimers();
-        gameController.nextTurn();
-        gameController.resetTurnTimer();
+        gameController.endTurn();
         updateGameInfo();
         selectedPosition = null;
 
@@ -739,7 +713,7 @@ public class GameGUI extends JFrame {
             );
 
             Game game = new Game(players, Config.GRID_WIDTH, Config.GRID_HEIGHT);
-            GameController gc = new GameController(players, game.getGrid(), new Scanner(System.in));
+            GameController gc = new GameController(game.getEngine(), new Scanner(System.in));
 
             //new GameGUI(game, gc);
             GameGUI gui = new GameGUI(game, gc);
@@ -763,18 +737,4 @@ public class GameGUI extends JFrame {
         gainLabel.setForeground(Color.GREEN);
         gainLabel.setFont(new Font("Arial", Font.BOLD, 14));
     }
-
-    public void syncResourcesToPlayers() {
-        Player currentPlayer = gameController.getCurrentPlayer();
-
-        try {
-            int gold = Integer.parseInt(goldLabel.getText().replaceAll("[^\\d]", ""));
-            int food = Integer.parseInt(foodLabel.getText().replaceAll("[^\\d]", ""));
-
-            currentPlayer.setGold(gold);
-            currentPlayer.setFood(food);
-        } catch (NumberFormatException ex) {
-            System.err.println("Failed to parse gold or food: " + ex.getMessage());
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package Grid;
+
+// Struct-of-arrays store: one flat primitive array per field, ~10 bytes per cell
+class ArrayCellStore implements CellStore {
+
+    private final int width;
+    private final int height;
+    private final byte[] terrain;
+    private final byte[] owners;
+    private final long[] destroyedForests;
+    private final int[] structures;
+    private final int[] units;
+
+    ArrayCellStore(int width, int height) {
+        int cells = Math.multiplyExact(width, height);
+        this.width = width;
+        this.height = height;
+        this.terrain = new byte[cells];
+        this.owners = new byte[cells];
+        this.destroyedForests = new long[(cells + 63) >>> 6];
+        this.structures = new int[cells];
+        this.units = new int[cells];
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public byte getTerrain(int cell) {
+        return terrain[cell];
+    }
+
+    @Override
+    public void setTerrain(int cell, byte value) {
+        terrain[cell] = value;
+    }
+
+    @Override
+    public int getOwnerId(int cell) {
+        return owners[cell] & 0xFF;
+    }
+
+    @Override
+    public void setOwnerId(int cell, int ownerId) {
+        owners[cell] = (byte) ownerId;
+    }
+
+    @Override
+    public boolean isForestDestroyed(int cell) {
+        return (destroyedForests[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    @Override
+    public void setForestDestroyed(int cell, boolean destroyed) {
+        if (destroyed) {
+            destroyedForests[cell >>> 6] |= 1L << cell;
+        } else {
+            destroyedForests[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+
+    @Override
+    public int getStructureId(int cell) {
+        return structures[cell];
+    }
+
+    @Override
+    public void setStructureId(int cell, int structureId) {
+        structures[cell] = structureId;
+    }
+
+    @Override
+    public int getUnitId(int cell) {
+        return units[cell];
+    }
+
+    @Override
+    public void setUnitId(int cell, int unitId) {
+        units[cell] = unitId;
+    }
+}
@@ -0,0 +1,63 @@
+package Grid;
+
+import RealmWar.Config;
+
+// Per-cell game state, addressed by row-major cell index (y * width + x).
+// Reads must be safe from several threads at once as long as nobody writes: a store frozen
+// under forked grids is read that way by the gui and the search threads.
+interface CellStore {
+
+    byte TERRAIN_EMPTY = Terrain.EMPTY;
+    byte TERRAIN_FOREST = Terrain.FOREST;
+    byte TERRAIN_VOID = Terrain.VOID;
+
+    int getWidth();
+
+    int getHeight();
+
+    byte getTerrain(int cell);
+
+    void setTerrain(int cell, byte terrain);
+
+    // 0 means no owner
+    int getOwnerId(int cell);
+
+    void setOwnerId(int cell, int ownerId);
+
+    boolean isForestDestroyed(int cell);
+
+    void setForestDestroyed(int cell, boolean destroyed);
+
+    // 0 means empty, otherwise an id from the grid's structure table
+    int getStructureId(int cell);
+
+    void setStructureId(int cell, int structureId);
+
+    // 0 means empty, otherwise an id from the grid's unit table
+    int getUnitId(int cell);
+
+    void setUnitId(int cell, int unitId);
+
+    // Lays out terrain for the whole map; lazy stores only remember the seed
+    default void generate(long seed) {
+        TerrainGenerator.generate(this, seed);
+    }
+
+    static CellStore create(int width, int height) {
+        long cells = (long) width * height;
+        switch (Config.CELL_STORE) {
+            case "heap":
+                return new ArrayCellStore(width, height);
+            case "offheap":
+                return new OffHeapCellStore(width, height);
+            case "chunked":
+                return new ChunkedCellStore(width, height, Config.MAX_RESIDENT_CHUNKS);
+            default:
+                if (cells >= Config.CHUNKED_MIN_CELLS)
+                    return new ChunkedCellStore(width, height, Config.MAX_RESIDENT_CHUNKS);
+                return cells >= Config.OFF_HEAP_MIN_CELLS
+                        ? new OffHeapCellStore(width, height)
+                        : new ArrayCellStore(width, height);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package Grid;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// World split into 64x64 chunks that are generated from the seed on first touch.
+// Only recently used chunks stay in memory; modified ones are paged out to a spill file.
+// Reads are thread-safe, since a store frozen under forked grids is read by the gui and the
+// search threads at once: resident chunks are found without locking, and only a miss (which
+// generates or pages in, and may evict) takes the lock. Writes still belong to one thread.
+class ChunkedCellStore implements CellStore {
+
+    private static final int SHIFT = 6;
+    private static final int SIZE = 1 << SHIFT;
+    private static final int MASK = SIZE - 1;
+    private static final int CHUNK_CELLS = SIZE * SIZE;
+    // terrain + owner + structure id + unit id + destroyed forest bits
+    private static final int CHUNK_BYTES = CHUNK_CELLS * 10 + CHUNK_CELLS / 8;
+
+    private static final class Chunk {
+        final int index;
+        final byte[] terrain = new byte[CHUNK_CELLS];
+        final byte[] owners = new byte[CHUNK_CELLS];
+        final long[] destroyedForests = new long[CHUNK_CELLS / 64];
+        final int[] structures = new int[CHUNK_CELLS];
+        final int[] units = new int[CHUNK_CELLS];
+        boolean dirty;
+        // Second chance for the eviction clock; a racy hint, so it needs no lock
+        boolean used;
+
+        Chunk(int index) {
+            this.index = index;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int chunksX;
+    // Resident chunks by chunk index, read without the lock
+    private final AtomicReferenceArray<Chunk> resident;
+    // The same chunks in clock order, guarded by the lock
+    private final Chunk[] clock;
+    private int residentCount;
+    private int hand;
+    private final BitSet spilled = new BitSet();
+    private final byte[] chunkTerrain = new byte[CHUNK_CELLS];
+    private long seed;
+    private FileChannel spillFile;
+    private ByteBuffer ioBuffer;
+
+    // Cells are mostly touched in runs, so remember the last chunk to skip the lookup.
+    // One volatile field, so a reader never pairs one chunk's index with another's data.
+    private volatile Chunk lastChunk;
+
+    ChunkedCellStore(int width, int height, int maxResident) {
+        // Cells are still addressed by int index
+        Math.multiplyExact(width, height);
+        this.width = width;
+        this.height = height;
+        this.chunksX = (width + MASK) >>> SHIFT;
+        this.resident = new AtomicReferenceArray<>(chunksX * ((height + MASK) >>> SHIFT));
+        this.clock = new Chunk[Math.max(1, maxResident)];
+    }
+
+    synchronized int getResidentChunkCount() {
+        return residentCount;
+    }
+
+    @Override
+    public synchronized void generate(long seed) {
+        this.seed = seed;
+        for (int i = 0; i < residentCount; i++) {
+            resident.set(clock[i].index, null);
+            clock[i] = null;
+        }
+        residentCount = 0;
+        hand = 0;
+        spilled.clear();
+        lastChunk = null;
+    }
+
+    private Chunk chunk(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        int index = (y >>> SHIFT) * chunksX + (x >>> SHIFT);
+        Chunk chunk = lastChunk;
+        if (chunk != null && chunk.index == index)
+            return chunk;
+
+        chunk = resident.get(index);
+        if (chunk == null)
+            chunk = load(index);
+        chunk.used = true;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    private synchronized Chunk load(int index) {
+        // Another reader may have loaded it while we waited
+        Chunk chunk = resident.get(index);
+        if (chunk != null)
+            return chunk;
+
+        chunk = spilled.get(index) ? pageIn(index) : create(index);
+        if (residentCount < clock.length) {
+            clock[residentCount++] = chunk;
+        } else {
+            // Evict the first chunk not used since the hand last passed it
+            while (clock[hand].used) {
+                clock[hand].used = false;
+                hand = (hand + 1) % clock.length;
+            }
+            evict(clock[hand]);
+            clock[hand] = chunk;
+            hand = (hand + 1) % clock.length;
+        }
+        resident.set(index, chunk);
+        return chunk;
+    }
+
+    private int local(int cell) {
+        return ((cell / width & MASK) << SHIFT) | (cell % width & MASK);
+    }
+
+    private Chunk create(int index) {
+        int chunkX = index % chunksX;
+        int chunkY = index / chunksX;
+        int chunkWidth = Math.min(SIZE, width - (chunkX << SHIFT));
+        int chunkHeight = Math.min(SIZE, height - (chunkY << SHIFT));
+        TerrainGenerator.fillChunk(seed, chunkX, chunkY, chunkWidth, chunkHeight, chunkTerrain);
+
+        Chunk chunk = new Chunk(index);
+        for (int y = 0; y < chunkHeight; y++) {
+            System.arraycopy(chunkTerrain, y * chunkWidth, chunk.terrain, y << SHIFT, chunkWidth);
+        }
+        return chunk;
+    }
+
+    private void evict(Chunk chunk) {
+        int index = chunk.index;
+        resident.set(index, null);
+        if (chunk == lastChunk)
+            lastChunk = null;
+        // Untouched chunks are simply regenerated from the seed next time
+        if (!chunk.dirty)
+            return;
+
+        ByteBuffer buffer = ioBuffer();
+        buffer.put(chunk.terrain).put(chunk.owners);
+        buffer.asLongBuffer().put(chunk.destroyedForests);
+        buffer.position(buffer.position() + CHUNK_CELLS / 8);
+        buffer.asIntBuffer().put(chunk.structures);
+        buffer.position(buffer.position() + CHUNK_CELLS * 4);
+        buffer.asIntBuffer().put(chunk.units);
+        buffer.clear();
+        try {
+            FileChannel channel = spillFile();
+            long offset = (long) index * CHUNK_BYTES;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to page out chunk " + index, e);
+        }
+        spilled.set(index);
+    }
+
+    private Chunk pageIn(int index) {
+        ByteBuffer buffer = ioBuffer();
+        try {
+            long offset = (long) index * CHUNK_BYTES;
+            while (buffer.hasRemaining()) {
+                if (spillFile.read(buffer, offset + buffer.position()) < 0)
+                    throw new IOException("Spill file truncated");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to page in chunk " + index, e);
+        }
+        buffer.flip();
+
+        Chunk chunk = new Chunk(index);
+        buffer.get(chunk.terrain).get(chunk.owners);
+        buffer.asLongBuffer().get(chunk.destroyedForests);
+        buffer.position(buffer.position() + CHUNK_CELLS / 8);
+        buffer.asIntBuffer().get(chunk.structures);
+        buffer.position(buffer.position() + CHUNK_CELLS * 4);
+        buffer.asIntBuffer().get(chunk.units);
+        buffer.clear();
+        return chunk;
+    }
+
+    private ByteBuffer ioBuffer() {
+        if (ioBuffer == null) {
+            ioBuffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        }
+        ioBuffer.clear();
+        return ioBuffer;
+    }
+
+    private FileChannel spillFile() throws IOException {
+        if (spillFile == null) {
+            File file = File.createTempFile("realmwar-chunks", ".bin");
+            file.deleteOnExit();
+            spillFile = new RandomAccessFile(file, "rw").getChannel();
+        }
+        return spillFile;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public byte getTerrain(int cell) {
+        return chunk(cell).terrain[local(cell)];
+    }
+
+    @Override
+    public void setTerrain(int cell, byte terrain) {
+        Chunk chunk = chunk(cell);
+        chunk.terrain[local(cell)] = terrain;
+        chunk.dirty = true;
+    }
+
+    @Override
+    public int getOwnerId(int cell) {
+        return chunk(cell).owners[local(cell)] & 0xFF;
+    }
+
+    @Override
+    public void setOwnerId(int cell, int ownerId) {
+        Chunk chunk = chunk(cell);
+        chunk.owners[local(cell)] = (byte) ownerId;
+        chunk.dirty = true;
+    }
+
+    @Override
+    public boolean isForestDestroyed(int cell) {
+        int local = local(cell);
+        return (chunk(cell).destroyedForests[local >>> 6] & (1L << local)) != 0;
+    }
+
+    @Override
+    public void setForestDestroyed(int cell, boolean destroyed) {
+        Chunk chunk = chunk(cell);
+        int local = local(cell);
+        if (destroyed) {
+            chunk.destroyedForests[local >>> 6] |= 1L << local;
+        } else {
+            chunk.destroyedForests[local >>> 6] &= ~(1L << local);
+        }
+        chunk.dirty = true;
+    }
+
+    @Override
+    public int getStructureId(int cell) {
+        return chunk(cell).structures[local(cell)];
+    }
+
+    @Override
+    public void setStructureId(int cell, int structureId) {
+        Chunk chunk = chunk(cell);
+        chunk.structures[local(cell)] = structureId;
+        chunk.dirty = true;
+    }
+
+    @Override
+    public int getUnitId(int cell) {
+        return chunk(cell).units[local(cell)];
+    }
+
+    @Override
+    public void setUnitId(int cell, int unitId) {
+        Chunk chunk = chunk(cell);
+        chunk.units[local(cell)] = unitId;
+        chunk.dirty = true;
+    }
+}
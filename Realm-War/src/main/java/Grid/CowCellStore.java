@@ -0,0 +1,216 @@
+package Grid;
+
+// Copy-on-write view over a frozen base store, in 64x64 chunks. Forking shares every chunk
+// with the fork; whichever side writes to a shared chunk first takes its own copy, so a
+// fork costs one pointer per chunk plus the chunks that actually change.
+// Not thread-safe: fork and write from one thread. Forks may be read concurrently, since the
+// base is frozen and every CellStore allows concurrent reads while nobody writes.
+class CowCellStore implements CellStore {
+
+    static final int CHUNK_SHIFT = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final CellStore base;
+    private final int width;
+    private final int height;
+    private final int chunksX;
+    private Chunk[] chunks;
+    // Chunks stamped with our token are ours alone to write
+    private Object token = new Object();
+
+    CowCellStore(CellStore base) {
+        this.base = base;
+        this.width = base.getWidth();
+        this.height = base.getHeight();
+        this.chunksX = (width + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+        int chunksY = (height + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+        this.chunks = new Chunk[Math.multiplyExact(chunksX, chunksY)];
+    }
+
+    private CowCellStore(CowCellStore parent) {
+        this.base = parent.base;
+        this.width = parent.width;
+        this.height = parent.height;
+        this.chunksX = parent.chunksX;
+        this.chunks = parent.chunks.clone();
+    }
+
+    CowCellStore fork() {
+        // Everything we hold so far becomes shared with the fork
+        token = new Object();
+        return new CowCellStore(this);
+    }
+
+    int getCopiedChunkCount() {
+        int count = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk != null) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void generate(long seed) {
+        throw new UnsupportedOperationException("A forked grid can't be regenerated");
+    }
+
+    private Chunk chunkAt(int x, int y) {
+        return chunks[(y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT)];
+    }
+
+    private Chunk writableChunk(int x, int y) {
+        int index = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+        Chunk chunk = chunks[index];
+        if (chunk == null) {
+            chunk = Chunk.load(base, (x >> CHUNK_SHIFT) << CHUNK_SHIFT, (y >> CHUNK_SHIFT) << CHUNK_SHIFT, token);
+            chunks[index] = chunk;
+        } else if (chunk.token != token) {
+            chunk = chunk.copy(token);
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    @Override
+    public byte getTerrain(int cell) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = chunkAt(x, y);
+        return chunk == null ? base.getTerrain(cell) : chunk.terrain[chunk.local(x, y)];
+    }
+
+    @Override
+    public void setTerrain(int cell, byte terrain) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = writableChunk(x, y);
+        chunk.terrain[chunk.local(x, y)] = terrain;
+    }
+
+    @Override
+    public int getOwnerId(int cell) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = chunkAt(x, y);
+        return chunk == null ? base.getOwnerId(cell) : chunk.owners[chunk.local(x, y)] & 0xFF;
+    }
+
+    @Override
+    public void setOwnerId(int cell, int ownerId) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = writableChunk(x, y);
+        chunk.owners[chunk.local(x, y)] = (byte) ownerId;
+    }
+
+    @Override
+    public boolean isForestDestroyed(int cell) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = chunkAt(x, y);
+        return chunk == null ? base.isForestDestroyed(cell) : chunk.destroyed[chunk.local(x, y)];
+    }
+
+    @Override
+    public void setForestDestroyed(int cell, boolean destroyed) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = writableChunk(x, y);
+        chunk.destroyed[chunk.local(x, y)] = destroyed;
+    }
+
+    @Override
+    public int getStructureId(int cell) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = chunkAt(x, y);
+        return chunk == null ? base.getStructureId(cell) : chunk.structures[chunk.local(x, y)];
+    }
+
+    @Override
+    public void setStructureId(int cell, int structureId) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = writableChunk(x, y);
+        chunk.structures[chunk.local(x, y)] = structureId;
+    }
+
+    @Override
+    public int getUnitId(int cell) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = chunkAt(x, y);
+        return chunk == null ? base.getUnitId(cell) : chunk.units[chunk.local(x, y)];
+    }
+
+    @Override
+    public void setUnitId(int cell, int unitId) {
+        int x = cell % width, y = cell / width;
+        Chunk chunk = writableChunk(x, y);
+        chunk.units[chunk.local(x, y)] = unitId;
+    }
+
+    // Edge chunks are cut to the map, so small maps copy only what they have
+    private static final class Chunk {
+        final Object token;
+        final int originX;
+        final int originY;
+        final int chunkWidth;
+        final byte[] terrain;
+        final byte[] owners;
+        final boolean[] destroyed;
+        final int[] structures;
+        final int[] units;
+
+        private Chunk(Object token, int originX, int originY, int chunkWidth, int size) {
+            this.token = token;
+            this.originX = originX;
+            this.originY = originY;
+            this.chunkWidth = chunkWidth;
+            this.terrain = new byte[size];
+            this.owners = new byte[size];
+            this.destroyed = new boolean[size];
+            this.structures = new int[size];
+            this.units = new int[size];
+        }
+
+        private Chunk(Chunk other, Object token) {
+            this.token = token;
+            this.originX = other.originX;
+            this.originY = other.originY;
+            this.chunkWidth = other.chunkWidth;
+            this.terrain = other.terrain.clone();
+            this.owners = other.owners.clone();
+            this.destroyed = other.destroyed.clone();
+            this.structures = other.structures.clone();
+            this.units = other.units.clone();
+        }
+
+        static Chunk load(CellStore base, int originX, int originY, Object token) {
+            int chunkWidth = Math.min(CHUNK_SIZE, base.getWidth() - originX);
+            int chunkHeight = Math.min(CHUNK_SIZE, base.getHeight() - originY);
+            Chunk chunk = new Chunk(token, originX, originY, chunkWidth, chunkWidth * chunkHeight);
+            int i = 0;
+            for (int y = originY; y < originY + chunkHeight; y++) {
+                int cell = y * base.getWidth() + originX;
+                for (int x = 0; x < chunkWidth; x++, cell++, i++) {
+                    chunk.terrain[i] = base.getTerrain(cell);
+                    chunk.owners[i] = (byte) base.getOwnerId(cell);
+                    chunk.destroyed[i] = base.isForestDestroyed(cell);
+                    chunk.structures[i] = base.getStructureId(cell);
+                    chunk.units[i] = base.getUnitId(cell);
+                }
+            }
+            return chunk;
+        }
+
+        Chunk copy(Object token) {
+            return new Chunk(this, token);
+        }
+
+        int local(int x, int y) {
+            return (y - originY) * chunkWidth + (x - originX);
+        }
+    }
+}
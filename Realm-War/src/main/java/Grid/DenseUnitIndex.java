@@ -0,0 +1,61 @@
+package Grid;
+
+import Units.Units;
+
+import java.util.function.Function;
+
+// Backed by the cell store's unit column; ids resolve through a slot table
+class DenseUnitIndex implements UnitIndex {
+
+    static final long MAX_CELLS = 1L << 22;
+
+    private final CellStore cells;
+    private final int width;
+    private final SlotTable<Units> slots;
+
+    DenseUnitIndex(CellStore cells) {
+        this(cells, new SlotTable<>());
+    }
+
+    private DenseUnitIndex(CellStore cells, SlotTable<Units> slots) {
+        this.cells = cells;
+        this.width = cells.getWidth();
+        this.slots = slots;
+    }
+
+    // The store's unit column is shared, so the ids must stay the same
+    @Override
+    public UnitIndex fork(CellStore cells, Function<Units, Units> copy) {
+        return new DenseUnitIndex(cells, slots.copy(copy));
+    }
+
+    @Override
+    public Units get(int x, int y) {
+        return slots.get(cells.getUnitId(y * width + x));
+    }
+
+    @Override
+    public void put(int x, int y, Units unit) {
+        int cell = y * width + x;
+        slots.remove(cells.getUnitId(cell));
+        cells.setUnitId(cell, unit != null ? slots.add(unit) : 0);
+    }
+
+    @Override
+    public void remove(int x, int y, Units unit) {
+        int cell = y * width + x;
+        int id = cells.getUnitId(cell);
+        if (id != 0 && slots.get(id) == unit) {
+            slots.remove(id);
+            cells.setUnitId(cell, 0);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int cell = 0; cell < width * cells.getHeight(); cell++) {
+            slots.remove(cells.getUnitId(cell));
+            cells.setUnitId(cell, 0);
+        }
+    }
+}
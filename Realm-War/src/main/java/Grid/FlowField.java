@@ -0,0 +1,129 @@
+package Grid;
+
+import java.util.Arrays;
+
+// Step distances to one target cell over the static map (void cells and structures block,
+// units are ignored because they move every turn). Covers a square window around the target.
+public class FlowField {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private final Grid grid;
+    private final int targetX;
+    private final int targetY;
+    private final int originX;
+    private final int originY;
+    private final int side;
+    private final int[] distance;
+    private boolean stale = true;
+
+    FlowField(Grid grid, int targetCell, int radius) {
+        this.grid = grid;
+        this.targetX = targetCell % grid.getWidth();
+        this.targetY = targetCell / grid.getWidth();
+        this.originX = Math.max(0, targetX - radius);
+        this.originY = Math.max(0, targetY - radius);
+        int right = Math.min(grid.getWidth() - 1, targetX + radius);
+        int bottom = Math.min(grid.getHeight() - 1, targetY + radius);
+        this.side = Math.max(right - originX, bottom - originY) + 1;
+        this.distance = new int[side * side];
+    }
+
+    public int getTargetCell() {
+        return grid.getCellIndex(targetX, targetY);
+    }
+
+    // Steps from (x, y) to the target, or UNREACHABLE
+    public int getDistance(int x, int y) {
+        int node = window(x, y);
+        return node < 0 ? UNREACHABLE : distance[node];
+    }
+
+    // Neighbouring cell that gets closer to the target, or -1 if there is none
+    public int nextStep(int x, int y) {
+        int best = getDistance(x, y);
+        int bestCell = -1;
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            int dist = getDistance(nx, ny);
+            if (dist < best) {
+                best = dist;
+                bestCell = grid.getCellIndex(nx, ny);
+            }
+        }
+        return bestCell;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    // Whether a passability change at (x, y) can alter any distance in this field
+    boolean isAffectedBy(int x, int y) {
+        int node = window(x, y);
+        if (node < 0 || stale)
+            return false;
+        if (x == targetX && y == targetY)
+            return false;
+        boolean passable = isPassable(grid.getCellIndex(x, y));
+        if (!passable)
+            return distance[node] != UNREACHABLE;
+        if (distance[node] != UNREACHABLE)
+            return false;
+        // Newly opened cell: only matters if it touches the reached area
+        for (int d = 0; d < 4; d++) {
+            if (getDistance(x + DX[d], y + DY[d]) != UNREACHABLE)
+                return true;
+        }
+        return false;
+    }
+
+    void markStale() {
+        stale = true;
+    }
+
+    void compute(int[] queue) {
+        Arrays.fill(distance, UNREACHABLE);
+        int start = window(targetX, targetY);
+        distance[start] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int node = queue[head++];
+            int x = originX + node % side;
+            int y = originY + node / side;
+            int next = distance[node] + 1;
+            for (int d = 0; d < 4; d++) {
+                int neighbour = window(x + DX[d], y + DY[d]);
+                if (neighbour < 0 || distance[neighbour] != UNREACHABLE)
+                    continue;
+                if (!isPassable(grid.getCellIndex(x + DX[d], y + DY[d])))
+                    continue;
+                distance[neighbour] = next;
+                queue[tail++] = neighbour;
+            }
+        }
+        stale = false;
+    }
+
+    int getWindowSize() {
+        return distance.length;
+    }
+
+    private boolean isPassable(int cell) {
+        return grid.getTerrain(cell) != CellStore.TERRAIN_VOID && grid.getStructure(cell) == null;
+    }
+
+    private int window(int x, int y) {
+        int wx = x - originX;
+        int wy = y - originY;
+        if (wx < 0 || wy < 0 || wx >= side || wy >= side || !grid.isValidPosition(x, y))
+            return -1;
+        return wy * side + wx;
+    }
+}
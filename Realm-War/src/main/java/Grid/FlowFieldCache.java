@@ -0,0 +1,65 @@
+package Grid;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// One shared flow field per target cell, so many units marching on the same target
+// don't each run their own search. Least recently used fields are dropped first.
+public class FlowFieldCache {
+
+    public static final int DEFAULT_CAPACITY = 32;
+    public static final int DEFAULT_RADIUS = 256;
+
+    private final Grid grid;
+    private final int radius;
+    private final LinkedHashMap<Integer, FlowField> fields;
+    private int[] queue = new int[0];
+
+    FlowFieldCache(Grid grid, int capacity, int radius) {
+        this.grid = grid;
+        this.radius = radius;
+        this.fields = new LinkedHashMap<Integer, FlowField>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, FlowField> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public FlowField get(Position target) {
+        int cell = grid.getCellIndex(target.getX(), target.getY());
+        FlowField field = fields.get(cell);
+        if (field == null) {
+            field = new FlowField(grid, cell, radius);
+            fields.put(cell, field);
+        }
+        if (field.isStale()) {
+            if (queue.length < field.getWindowSize()) {
+                queue = new int[field.getWindowSize()];
+            }
+            field.compute(queue);
+        }
+        return field;
+    }
+
+    // Next cell for a unit at from heading to target, or -1 if it can't get closer
+    public int nextStep(Position from, Position target) {
+        return get(target).nextStep(from.getX(), from.getY());
+    }
+
+    // Called by Grid whenever something that can block movement changes at a cell.
+    // Only fields whose distances really depend on that cell are recomputed, and lazily.
+    void cellChanged(int cell) {
+        int x = cell % grid.getWidth();
+        int y = cell / grid.getWidth();
+        for (FlowField field : fields.values()) {
+            if (field.isAffectedBy(x, y)) {
+                field.markStale();
+            }
+        }
+    }
+
+    public void clear() {
+        fields.clear();
+    }
+}
@@ -0,0 +1,64 @@
+package Grid;
+
+import RealmWar.Player;
+import Structures.Structures;
+import Units.Units;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Maps every player, unit and structure of a game to its copy while forking, so the
+// owner links between them point inside the fork
+public class ForkContext {
+
+    private final Map<Player, Player> players = new IdentityHashMap<>();
+    private final Map<Units, Units> units = new IdentityHashMap<>();
+    private final Map<Structures, Structures> structures = new IdentityHashMap<>();
+
+    public Player player(Player player) {
+        if (player == null)
+            return null;
+        Player copy = players.get(player);
+        if (copy == null) {
+            copy = player.copy();
+            players.put(player, copy);
+            List<Units> ownUnits = new ArrayList<>(player.getUnits().size());
+            for (Units unit : player.getUnits()) {
+                ownUnits.add(unit(unit));
+            }
+            copy.setUnits(ownUnits);
+            List<Structures> ownStructures = new ArrayList<>(player.getStructures().size());
+            for (Structures structure : player.getStructures()) {
+                ownStructures.add(structure(structure));
+            }
+            copy.setStructures(ownStructures);
+        }
+        return copy;
+    }
+
+    public Units unit(Units unit) {
+        if (unit == null)
+            return null;
+        Units copy = units.get(unit);
+        if (copy == null) {
+            copy = unit.copy();
+            units.put(unit, copy);
+            copy.setOwner(player(unit.getOwner()));
+        }
+        return copy;
+    }
+
+    public Structures structure(Structures structure) {
+        if (structure == null)
+            return null;
+        Structures copy = structures.get(structure);
+        if (copy == null) {
+            copy = structure.copy();
+            structures.put(structure, copy);
+            copy.setOwner(player(structure.getOwner()));
+        }
+        return copy;
+    }
+}
@@ -3,45 +3,124 @@ package Grid;
 import Blocks.*;
 import RealmWar.Player;
 import Structures.Structures;
-import Structures.TownHall;
 import Units.*;
+import Utils.GameLog;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public class Grid {
 
     private int width;
     private int height;
-    private Blocks[][] blocks;
+    private long seed;
+    private CellStore cells;
+    private UnitIndex unitIndex;
+    private SlotTable<Structures> structures = new SlotTable<>();
+    private final StructureRegistry structureRegistry = new StructureRegistry();
+    private Player[] playersById = new Player[8];
     private List<Units> units = new ArrayList<>();
+    private StateHash stateHash;
+    // Terrain is exactly what randomizeBlocks made from the seed, so saves can leave it out.
+    // Cutting forests down does not count; that is kept apart from the terrain.
+    private boolean terrainFromSeed;
+    private PathFinder pathFinder;
+    private FlowFieldCache flowFields;
 
     public Grid(int width, int height) {
+        this(width, height, new Random().nextLong());
+    }
+
+    public Grid(int width, int height, long seed) {
+        this(width, height, seed, true);
+    }
+
+    Grid(int width, int height, long seed, boolean randomize) {
         this.width = width;
         this.height = height;
-        blocks = new Blocks[width][height];
-        randomizeBlocks();
+        this.seed = seed;
+        this.cells = CellStore.create(width, height);
+        this.unitIndex = UnitIndex.create(cells);
+        this.stateHash = new StateHash(seed, width, height);
+        if (randomize) {
+            randomizeBlocks();
+        }
+    }
+
+    private Grid(Grid parent, CowCellStore cells, ForkContext context) {
+        this.width = parent.width;
+        this.height = parent.height;
+        this.seed = parent.seed;
+        this.terrainFromSeed = parent.terrainFromSeed;
+        this.cells = cells;
+        this.stateHash = new StateHash(parent.stateHash);
+        this.unitIndex = parent.unitIndex.fork(cells, unit -> {
+            Units copy = context.unit(unit);
+            copy.setStateHash(stateHash);
+            return copy;
+        });
+        this.structures = parent.structures.copy(structure -> {
+            Structures copy = context.structure(structure);
+            copy.setPlacement(stateHash, structureRegistry, structure.getCell());
+            structureRegistry.add(copy);
+            return copy;
+        });
+        this.playersById = new Player[parent.playersById.length];
+        for (int id = 0; id < playersById.length; id++) {
+            playersById[id] = context.player(parent.playersById[id]);
+            if (playersById[id] != null)
+                playersById[id].setStateHash(stateHash);
+        }
+        this.units = new ArrayList<>(parent.units.size());
+        for (Units unit : parent.units) {
+            units.add(context.unit(unit));
+        }
+    }
+
+    // Independent copy of this grid. Cells are shared copy-on-write in 64x64 chunks, so the
+    // cost is the units, structures and players plus whatever either side changes later.
+    // The first fork also changes this grid for good, see freezeCells.
+    public Grid fork(ForkContext context) {
+        if (!(cells instanceof CowCellStore))
+            freezeCells();
+        return new Grid(this, ((CowCellStore) cells).fork(), context);
+    }
+
+    // Turns the store written so far into a frozen base that is never written again, and
+    // moves this grid onto its own copy-on-write view of it, exactly like each fork. That
+    // keeps forks cheap, but it is permanent: on the live grid a cell read then costs about
+    // 30 ns instead of 8, a write about 20 ns instead of 4, and the first write to each chunk
+    // copies it. Copying the whole store per fork instead would cost O(cells) on every AI move.
+    private void freezeCells() {
+        CellStore base = cells;
+        cells = new CowCellStore(base);
+        unitIndex = unitIndex.fork(cells, unit -> unit);
     }
 
     public void setUnit(Units unit) {
         Position pos = unit.getPosition();
         if (!isValidPosition(pos.getX(), pos.getY())) {
-            System.out.println("Invalid position");
+            GameLog.println("Invalid position");
             return;
         }
 
         Blocks block = getBlock(pos);
-        if (block.getUnit() != null || block.getStructure() != null) {
-            System.out.println("You can only set a unit or structure on each block");
+        Units existing = block.getUnit();
+        if ((existing != null && existing != unit) || block.getStructure() != null) {
+            GameLog.println("You can only set a unit or structure on each block");
             return;
         }
         //If forest block -> Destroy it
         if (block instanceof ForestBlock) {
             ((ForestBlock) block).destroyForest();
-            System.out.println("Forest destroyed at: " + pos);
+            GameLog.println("Forest destroyed at: " + pos);
+        }
+        //Already placed by addUnit
+        if (existing == null) {
+            units.add(unit);
         }
-        units.add(unit);
         block.setUnit(unit);
     }
 
@@ -49,21 +128,38 @@ public class Grid {
         Position pos = unit.getPosition();
         if (isValidPosition(pos.getX(), pos.getY())) {
             units.add(unit);
+            indexUnit(pos.getX(), pos.getY(), unit);
         }
     }
 
     public Units getUnitAt(Position pos) {
-        for (Units unit : units) {
-            if (unit.getPosition().equals(pos)) {
-                return unit;
-            }
+        if (!isValidPosition(pos.getX(), pos.getY()))
+            return null;
+        return unitIndex.get(pos.getX(), pos.getY());
+    }
+
+    public PathFinder getPathFinder() {
+        if (pathFinder == null) {
+            pathFinder = new PathFinder(this);
         }
-        return null;
+        return pathFinder;
     }
 
-    public void moveUnit(Units unit, Position newPos) {
+    public FlowFieldCache getFlowFields() {
+        if (flowFields == null) {
+            flowFields = new FlowFieldCache(this, FlowFieldCache.DEFAULT_CAPACITY, FlowFieldCache.DEFAULT_RADIUS);
+        }
+        return flowFields;
+    }
+
+    // Returns false if the target can't be reached within the unit's movement range
+    public boolean moveUnit(Units unit, Position newPos) {
         if (!isValidPosition(newPos.getX(), newPos.getY()))
-            return;
+            return false;
+        if (!getPathFinder().canReach(unit, newPos)) {
+            GameLog.println("Target is out of movement range");
+            return false;
+        }
         Blocks newBlock1 = getBlock(newPos);
         if (newBlock1 instanceof ForestBlock && ((ForestBlock) newBlock1).hasForest()) {
             ((ForestBlock) newBlock1).destroyForest();
@@ -80,7 +176,7 @@ public class Grid {
             if (newBlock != null) {
                 newBlock.setUnit(unit);
             }
-            return;
+            return true;
         }
 
         if (!target.getOwner().equals(unit.getOwner())) {
@@ -105,9 +201,9 @@ public class Grid {
             if (!unit.isAlive()) {
                 units.remove(unit);
                 unit.getOwner().removeUnit(unit);
-                Blocks oldBlock = getBlock(oldPos);
-                if (oldBlock != null) {
-                    oldBlock.removeUnit();
+                Blocks block = getBlock(unit.getPosition());
+                if (block != null && block.getUnit() == unit) {
+                    block.removeUnit();
                 }
             }
         } else {
@@ -119,7 +215,7 @@ public class Grid {
                 target.getOwner().removeUnit(target);
                 mergedUnit.setPosition(newPos);
                 units.add(mergedUnit);
-                mergedUnit.getOwner().addUnit(mergedUnit);
+                mergedUnit.getOwner().attachUnit(mergedUnit);
 
                 Blocks oldBlock = getBlock(oldPos);
                 Blocks targetBlock = getBlock(newPos);
@@ -134,43 +230,43 @@ public class Grid {
                 }
             }
         }
+        return true;
     }
 
     private Units mergeUnits(Units unit, Units target) {
-        if (!unit.getClass().equals(target.getClass()))
+        if (unit.getType() != target.getType())
             return null;
-        Units newUnit = null;
-        if (unit instanceof SwordMan)
-            newUnit = new SwordMan(unit.getOwner(), unit.getPosition());
-        else if (unit instanceof SpearMan)
-            newUnit = new SpearMan(unit.getOwner(), unit.getPosition());
-        else if (unit instanceof Peasant)
-            newUnit = new Peasant(unit.getOwner(), unit.getPosition());
-        else if (unit instanceof Knight)
-            newUnit = new Knight(unit.getOwner(), unit.getPosition());
-
-        if (newUnit != null) {
-            newUnit.setHitPoints(unit.getHitPoints() + target.getHitPoints());
-            newUnit.setAttackPower(unit.getAttackPower() + target.getAttackPower());
-            newUnit.setLevel(Math.max(unit.getLevel(), target.getLevel()) + 1);
-        }
+        Units newUnit = unit.getType().create(unit.getOwner(), unit.getPosition());
+        newUnit.setHitPoints(unit.getHitPoints() + target.getHitPoints());
+        newUnit.setAttackPower(unit.getAttackPower() + target.getAttackPower());
+        newUnit.setLevel(Math.max(unit.getLevel(), target.getLevel()) + 1);
         return newUnit;
     }
 
     public void removeUnit(Units unit) {
         if (unit != null) {
             units.remove(unit);
-            Blocks block = getBlock(unit.getPosition());
-            if (block != null) {
-                block.removeUnit();
+            Position pos = unit.getPosition();
+            if (isValidPosition(pos.getX(), pos.getY())) {
+                if (unitIndex.get(pos.getX(), pos.getY()) == unit) {
+                    indexUnit(pos.getX(), pos.getY(), null);
+                }
             }
         }
     }
 
     public Blocks getBlock(int x, int y) {
-        if (isValidPosition(x, y))
-            return blocks[x][y];
-        return null;
+        if (!isValidPosition(x, y))
+            return null;
+        Position position = new Position(x, y);
+        switch (cells.getTerrain(getCellIndex(x, y))) {
+            case CellStore.TERRAIN_FOREST:
+                return new ForestBlock(this, position);
+            case CellStore.TERRAIN_VOID:
+                return new VoidBlock(this, position);
+            default:
+                return new EmptyBlock(this, position);
+        }
     }
 
     public List<Units> getAllUnits() {
@@ -181,30 +277,10 @@ public class Grid {
         return getBlock(position.getX(), position.getY());
     }
 
+    // Terrain is a pure function of the seed, so chunked stores can build it lazily
     public void randomizeBlocks() {
-        List<Position> allPositions = new ArrayList<>();
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                allPositions.add(new Position(x, y));
-            }
-        }
-
-        Collections.shuffle(allPositions);
-
-        int totalBlocks = width * height;
-        int forestCount = (int) (totalBlocks * 0.8);
-        int voidCount = totalBlocks / 10;   // about 10% Void block
-
-        for (int i = 0; i < allPositions.size(); i++) {
-            Position pos = allPositions.get(i);
-            if (i < voidCount) {
-                blocks[pos.getX()][pos.getY()] = new VoidBlock(pos);
-            } else if (i < voidCount + forestCount) {
-                blocks[pos.getX()][pos.getY()] = new ForestBlock(pos);
-            } else {
-                blocks[pos.getX()][pos.getY()] = new EmptyBlock(pos);
-            }
-        }
+        cells.generate(seed);
+        terrainFromSeed = true;
     }
 
     public List<Position> getAdjacentPositions(Position pos) {
@@ -241,19 +317,23 @@ public class Grid {
         return height;
     }
 
+    public long getSeed() {
+        return seed;
+    }
+
     public void setStructure(Position startingPos, Structures structure) {
 
         Blocks block = getBlock(startingPos);
         if (block == null || !block.canBuildStructure()) {
-            System.out.println("Can't build structure");
+            GameLog.println("Can't build structure");
             return;
         }
         if (block.getStructure() != null || block.getUnit() != null) {
-            System.out.println("You can only build structure or train unit on each block");
+            GameLog.println("You can only build structure or train unit on each block");
         }
         if (block instanceof ForestBlock) {
             ((ForestBlock) block).destroyForest();
-            System.out.println("Forest destroyed at: " + startingPos);
+            GameLog.println("Forest destroyed at: " + startingPos);
         }
         block.setStructure(structure);
     }
@@ -271,7 +351,178 @@ public class Grid {
         block.setStructure(null);
         owner.removeStructure(structure);
 
-        if (structure instanceof TownHall)
+        if (structure.getTypeId() == Structures.TOWN_HALL)
             owner.checkDefeat();
     }
+
+    // --- Cell level access, used by the Blocks views ---
+
+    public int getCellIndex(int x, int y) {
+        return y * width + x;
+    }
+
+    public Position getPosition(int cell) {
+        return new Position(cell % width, cell / width);
+    }
+
+    public int getOwnerId(int cell) {
+        return cells.getOwnerId(cell);
+    }
+
+    public Player getOwner(int cell) {
+        int id = cells.getOwnerId(cell);
+        return id != 0 && id < playersById.length ? playersById[id] : null;
+    }
+
+    public void setOwner(int cell, Player owner) {
+        if (owner == null) {
+            setOwnerId(cell, 0);
+            return;
+        }
+        registerPlayer(owner);
+        setOwnerId(cell, owner.getId());
+    }
+
+    // Owner ids are stored per cell, so the grid has to know which Player each id means
+    public void registerPlayer(Player player) {
+        int id = player.getId();
+        if (id <= 0 || id > 255) {
+            throw new IllegalArgumentException("Player id must be between 1 and 255: " + id);
+        }
+        if (id >= playersById.length) {
+            playersById = Arrays.copyOf(playersById, Math.max(id + 1, playersById.length * 2));
+        }
+        Player old = playersById[id];
+        if (old == player)
+            return;
+        if (old != null) {
+            stateHash.togglePlayer(id, old.getGold(), old.getFood());
+            old.setStateHash(null);
+        }
+        playersById[id] = player;
+        player.setStateHash(stateHash);
+        stateHash.togglePlayer(id, player.getGold(), player.getFood());
+    }
+
+    public boolean isForestDestroyed(int cell) {
+        return cells.isForestDestroyed(cell);
+    }
+
+    public void destroyForest(int cell) {
+        if (cells.getTerrain(cell) != CellStore.TERRAIN_FOREST || cells.isForestDestroyed(cell))
+            return;
+        setForestDestroyed(cell, true);
+        Player owner = getOwner(cell);
+        if (owner != null) {
+            owner.onForestDestroyed(getBlock(cell % width, cell / width));
+        }
+        terrainChanged(cell);
+    }
+
+    public Units getUnit(int cell) {
+        return unitIndex.get(cell % width, cell / width);
+    }
+
+    public void placeUnit(int cell, Units unit) {
+        indexUnit(cell % width, cell / width, unit);
+    }
+
+    // Every unit placement goes through here so the state hash follows it
+    private void indexUnit(int x, int y, Units unit) {
+        Units old = unitIndex.get(x, y);
+        if (old == unit)
+            return;
+        if (old != null && old.getStateHash() == stateHash) {
+            stateHash.toggleUnit(old);
+            old.setStateHash(null);
+        }
+        unitIndex.put(x, y, unit);
+        if (unit != null) {
+            stateHash.toggleUnit(unit);
+            unit.setStateHash(stateHash);
+        }
+    }
+
+    // Placed structures by owner and type
+    public StructureRegistry getStructureRegistry() {
+        return structureRegistry;
+    }
+
+    // Cell of a structure standing on this grid, or -1
+    public int getStructureCell(Structures structure) {
+        int cell = structure.getCell();
+        return cell >= 0 && getStructure(cell) == structure ? cell : -1;
+    }
+
+    public Structures getStructure(int cell) {
+        return structures.get(cells.getStructureId(cell));
+    }
+
+    public void placeStructure(int cell, Structures structure) {
+        int oldId = cells.getStructureId(cell);
+        Structures old = structures.get(oldId);
+        if (old != null && old.getStateHash() == stateHash) {
+            stateHash.toggleStructure(old, cell);
+            structureRegistry.remove(old);
+            old.setPlacement(null, null, -1);
+        }
+        structures.remove(oldId);
+        cells.setStructureId(cell, structure != null ? structures.add(structure) : 0);
+        if (structure != null) {
+            structure.setPlacement(stateHash, structureRegistry, cell);
+            structureRegistry.add(structure);
+            stateHash.toggleStructure(structure, cell);
+        }
+        terrainChanged(cell);
+    }
+
+    // 64-bit hash of the whole game state on this grid, kept up to date incrementally
+    public long getStateHash() {
+        return stateHash.get();
+    }
+
+    private void terrainChanged(int cell) {
+        if (flowFields != null) {
+            flowFields.cellChanged(cell);
+        }
+    }
+
+    byte getTerrain(int cell) {
+        return cells.getTerrain(cell);
+    }
+
+    // One of the Terrain kinds, with cut forests told apart from standing ones
+    public byte getTerrainKind(int cell) {
+        return Terrain.kind(cells.getTerrain(cell), cells.isForestDestroyed(cell));
+    }
+
+    // Nothing can be built, trained or moved onto a void cell
+    public boolean isVoid(int cell) {
+        return cells.getTerrain(cell) == CellStore.TERRAIN_VOID;
+    }
+
+    boolean isTerrainFromSeed() {
+        return terrainFromSeed;
+    }
+
+    void setTerrain(int cell, byte terrain) {
+        terrainFromSeed = false;
+        cells.setTerrain(cell, terrain);
+    }
+
+    void setForestDestroyed(int cell, boolean destroyed) {
+        if (cells.isForestDestroyed(cell) != destroyed) {
+            cells.setForestDestroyed(cell, destroyed);
+            stateHash.toggleForestDestroyed(cell);
+        }
+    }
+
+    void setOwnerId(int cell, int ownerId) {
+        int old = cells.getOwnerId(cell);
+        if (old != ownerId) {
+            cells.setOwnerId(cell, ownerId);
+            stateHash.toggleOwner(cell, old);
+            stateHash.toggleOwner(cell, ownerId);
+        }
+    }
 }
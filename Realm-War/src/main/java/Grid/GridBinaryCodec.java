@@ -0,0 +1,205 @@
+package Grid;
+
+import RealmWar.Player;
+import Structures.Structures;
+import Units.UnitType;
+import Units.Units;
+import Utils.BinaryIn;
+import Utils.BinaryOut;
+
+import java.io.IOException;
+import java.util.List;
+
+// The grid section of a binary save:
+//   width int, height int, seed long, terrain mode byte
+//   SEEDED_TERRAIN: generator version short, then owners as runs: varint owner id, varint run length
+//   FULL_TERRAIN:   cells as runs: varint (owner id << 2 | terrain), varint run length
+//   (either way the runs cover every cell)
+//   destroyed forests: varint count, then varint gaps between ascending cells
+//   structures: varint count, then 10-byte records: cell int, type byte, level byte, durability int
+//   units: varint count, then 16-byte records: cell int, type byte, owner id byte,
+//          level short, hit points int, attack power int
+// Terrain is left out whenever the seed still describes it, so the size of such a save follows
+// how much has happened in the game rather than the size of the map. Version 1 saves have no
+// mode byte and always carry full terrain. Structure owners are the owners of their cells,
+// as with JSON saves.
+public final class GridBinaryCodec {
+
+    public static final int FULL_TERRAIN = 0;
+    public static final int SEEDED_TERRAIN = 1;
+
+    private GridBinaryCodec() {
+    }
+
+    public static void write(BinaryOut out, Grid grid) throws IOException {
+        int cellCount = grid.getWidth() * grid.getHeight();
+        out.writeInt(grid.getWidth());
+        out.writeInt(grid.getHeight());
+        out.writeLong(grid.getSeed());
+
+        boolean seeded = grid.isTerrainFromSeed();
+        out.writeByte(seeded ? SEEDED_TERRAIN : FULL_TERRAIN);
+        if (seeded)
+            out.writeShort(TerrainGenerator.VERSION);
+
+        int runKey = -1;
+        int runLength = 0;
+        int structureCount = 0;
+        int destroyedCount = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int key = seeded ? grid.getOwnerId(cell) : grid.getOwnerId(cell) << 2 | grid.getTerrain(cell);
+            if (key != runKey) {
+                if (runLength > 0) {
+                    out.writeVarint(runKey);
+                    out.writeVarint(runLength);
+                }
+                runKey = key;
+                runLength = 0;
+            }
+            runLength++;
+            if (grid.isForestDestroyed(cell))
+                destroyedCount++;
+            if (grid.getStructure(cell) != null)
+                structureCount++;
+        }
+        if (runLength > 0) {
+            out.writeVarint(runKey);
+            out.writeVarint(runLength);
+        }
+
+        out.writeVarint(destroyedCount);
+        int previous = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (grid.isForestDestroyed(cell)) {
+                out.writeVarint(cell - previous);
+                previous = cell;
+            }
+        }
+
+        out.writeVarint(structureCount);
+        for (int cell = 0; cell < cellCount; cell++) {
+            Structures structure = grid.getStructure(cell);
+            if (structure != null) {
+                out.writeInt(cell);
+                out.writeByte(structure.getTypeId());
+                out.writeByte(structure.getCurrentLevel());
+                out.writeInt(structure.getDurability());
+            }
+        }
+
+        List<Units> units = grid.getAllUnits();
+        out.writeVarint(units.size());
+        for (Units unit : units) {
+            Position position = unit.getPosition();
+            out.writeInt(grid.getCellIndex(position.getX(), position.getY()));
+            out.writeByte(unit.getType().getId());
+            out.writeByte(unit.getOwnerId());
+            out.writeShort(unit.getLevel());
+            out.writeInt(unit.getHitPoints());
+            out.writeInt(unit.getAttackPower());
+        }
+    }
+
+    // Units are given their owners from players; structures are left for the caller to hand out.
+    // saveVersion is the version from the save header.
+    public static Grid read(BinaryIn in, List<Player> players, int saveVersion) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        long seed = in.readLong();
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE)
+            throw new IOException("Bad grid size in save: " + width + "x" + height);
+        int mode = saveVersion >= 2 ? in.readByte() : FULL_TERRAIN;
+        if (mode != FULL_TERRAIN && mode != SEEDED_TERRAIN)
+            throw new IOException("Unknown terrain mode in save: " + mode);
+        boolean seeded = mode == SEEDED_TERRAIN;
+        if (seeded) {
+            int generatorVersion = in.readShort();
+            if (generatorVersion != TerrainGenerator.VERSION)
+                throw new IOException("Save was made with terrain generator version " + generatorVersion
+                        + ", this build has version " + TerrainGenerator.VERSION);
+        }
+        int cellCount = width * height;
+        Grid grid = new Grid(width, height, seed, seeded);
+
+        int cell = 0;
+        while (cell < cellCount) {
+            int key = in.readVarint();
+            int runLength = in.readVarint();
+            if (runLength <= 0 || runLength > cellCount - cell)
+                throw new IOException("Bad cell run in save at cell " + cell);
+            int end = cell + runLength;
+            if (seeded) {
+                // A fresh grid has no owners, so unowned runs need no writes
+                if (key != 0) {
+                    for (; cell < end; cell++) {
+                        grid.setOwnerId(cell, key);
+                    }
+                }
+                cell = end;
+            } else {
+                byte terrain = (byte) (key & 3);
+                int ownerId = key >>> 2;
+                for (; cell < end; cell++) {
+                    grid.setTerrain(cell, terrain);
+                    grid.setOwnerId(cell, ownerId);
+                }
+            }
+        }
+
+        int destroyedCount = in.readVarint();
+        cell = 0;
+        for (int i = 0; i < destroyedCount; i++) {
+            cell += in.readVarint();
+            grid.setForestDestroyed(checkCell(cell, cellCount), true);
+        }
+
+        int structureCount = in.readVarint();
+        for (int i = 0; i < structureCount; i++) {
+            cell = checkCell(in.readInt(), cellCount);
+            int type = in.readByte();
+            int level = in.readByte();
+            int durability = in.readInt();
+            Structures structure = newStructure(type);
+            structure.restore(level, durability);
+            grid.placeStructure(cell, structure);
+        }
+
+        int unitCount = in.readVarint();
+        for (int i = 0; i < unitCount; i++) {
+            cell = checkCell(in.readInt(), cellCount);
+            int type = in.readByte();
+            Player owner = findPlayer(players, in.readByte());
+            int level = in.readShort();
+            int hitPoints = in.readInt();
+            int attackPower = in.readInt();
+            if (type >= UnitType.count())
+                throw new IOException("Unknown unit type in save: " + type);
+            Units unit = UnitType.byId(type).create(owner, grid.getPosition(cell));
+            unit.setLevel(level);
+            unit.setHitPoints(hitPoints);
+            unit.setAttackPower(attackPower);
+            grid.addUnit(unit);
+        }
+        return grid;
+    }
+
+    private static int checkCell(int cell, int cellCount) throws IOException {
+        if (cell < 0 || cell >= cellCount)
+            throw new IOException("Cell out of range in save: " + cell);
+        return cell;
+    }
+
+    private static Structures newStructure(int type) throws IOException {
+        if (type >= Structures.TYPES)
+            throw new IOException("Unknown structure type in save: " + type);
+        return Structures.create(type, null);
+    }
+
+    private static Player findPlayer(List<Player> players, int id) throws IOException {
+        for (Player player : players) {
+            if (player.getId() == id)
+                return player;
+        }
+        throw new IOException("Unit owned by unknown player " + id + " in save");
+    }
+}
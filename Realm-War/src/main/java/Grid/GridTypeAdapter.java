@@ -0,0 +1,288 @@
+package Grid;
+
+import Structures.Structures;
+import Units.Units;
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Grid has no Blocks objects to reflect over any more, so it is saved column by column.
+// Both directions stream; nothing is held per cell beyond a byte per column.
+public class GridTypeAdapter extends TypeAdapter<Grid> {
+
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            return type.getRawType() == Grid.class ? (TypeAdapter<T>) new GridTypeAdapter(gson) : null;
+        }
+    };
+
+    private final TypeAdapter<Structures> structureAdapter;
+    private final TypeAdapter<Units> unitAdapter;
+
+    private GridTypeAdapter(Gson gson) {
+        this.structureAdapter = gson.getAdapter(Structures.class);
+        this.unitAdapter = gson.getAdapter(Units.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, Grid grid) throws IOException {
+        if (grid == null) {
+            out.nullValue();
+            return;
+        }
+        int cellCount = grid.getWidth() * grid.getHeight();
+        out.beginObject();
+        out.name("width").value(grid.getWidth());
+        out.name("height").value(grid.getHeight());
+        out.name("seed").value(grid.getSeed());
+
+        out.name("terrain").beginArray();
+        for (int cell = 0; cell < cellCount; cell++) {
+            out.value(grid.getTerrain(cell));
+        }
+        out.endArray();
+
+        out.name("owners").beginArray();
+        for (int cell = 0; cell < cellCount; cell++) {
+            out.value(grid.getOwnerId(cell));
+        }
+        out.endArray();
+
+        out.name("destroyedForests").beginArray();
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (grid.isForestDestroyed(cell))
+                out.value(cell);
+        }
+        out.endArray();
+
+        out.name("structures").beginArray();
+        for (int cell = 0; cell < cellCount; cell++) {
+            Structures structure = grid.getStructure(cell);
+            if (structure != null) {
+                out.beginObject();
+                out.name("cell").value(cell);
+                out.name("structure");
+                structureAdapter.write(out, structure);
+                out.endObject();
+            }
+        }
+        out.endArray();
+
+        out.name("units").beginArray();
+        for (Units unit : grid.getAllUnits()) {
+            unitAdapter.write(out, unit);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    // Fields may come in any order, so the columns are collected first and the grid built last
+    @Override
+    public Grid read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int width = -1;
+        int height = -1;
+        long seed = 0;
+        ByteColumn terrain = new ByteColumn();
+        ByteColumn owners = new ByteColumn();
+        List<Integer> destroyedForests = new ArrayList<>();
+        List<Integer> structureCells = new ArrayList<>();
+        List<Structures> structures = new ArrayList<>();
+        List<Units> units = new ArrayList<>();
+        List<LegacyBlock> legacyBlocks = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "width":
+                    width = in.nextInt();
+                    break;
+                case "height":
+                    height = in.nextInt();
+                    break;
+                case "seed":
+                    seed = in.nextLong();
+                    break;
+                case "terrain":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        terrain.add(in.nextInt());
+                    }
+                    in.endArray();
+                    break;
+                case "owners":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        owners.add(in.nextInt());
+                    }
+                    in.endArray();
+                    break;
+                case "destroyedForests":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        destroyedForests.add(in.nextInt());
+                    }
+                    in.endArray();
+                    break;
+                case "structures":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        int cell = -1;
+                        Structures structure = null;
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            String name = in.nextName();
+                            if (name.equals("cell"))
+                                cell = in.nextInt();
+                            else if (name.equals("structure"))
+                                structure = structureAdapter.read(in);
+                            else
+                                in.skipValue();
+                        }
+                        in.endObject();
+                        if (cell < 0 || structure == null)
+                            throw new JsonParseException("Structure entry needs a cell and a structure");
+                        structureCells.add(cell);
+                        structures.add(structure);
+                    }
+                    in.endArray();
+                    break;
+                case "blocks":
+                    legacyBlocks = readLegacyBlocks(in);
+                    break;
+                case "units":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        units.add(unitAdapter.read(in));
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (legacyBlocks != null && width >= 0 && height >= 0) {
+            terrain.size = 0;
+            for (int cell = 0; cell < width * height; cell++) {
+                terrain.add(Terrain.EMPTY);
+                owners.add(0);
+            }
+            for (LegacyBlock block : legacyBlocks) {
+                if (block.x >= width || block.y >= height)
+                    throw new JsonParseException("Block outside the " + width + "x" + height + " grid");
+                int cell = block.y * width + block.x;
+                terrain.values[cell] = block.terrain;
+                if (block.forestDestroyed)
+                    destroyedForests.add(cell);
+                if (block.structure != null) {
+                    structureCells.add(cell);
+                    structures.add(block.structure);
+                }
+            }
+        }
+        if (width < 0 || height < 0 || terrain.size != width * height || owners.size != width * height) {
+            throw new JsonParseException("Grid data does not match size " + width + "x" + height);
+        }
+        Grid grid = new Grid(width, height, seed, false);
+        for (int cell = 0; cell < terrain.size; cell++) {
+            grid.setTerrain(cell, terrain.values[cell]);
+            grid.setOwnerId(cell, owners.values[cell] & 0xFF);
+        }
+        for (int cell : destroyedForests) {
+            grid.setForestDestroyed(cell, true);
+        }
+        for (int i = 0; i < structures.size(); i++) {
+            grid.placeStructure(structureCells.get(i), structures.get(i));
+        }
+        for (Units unit : units) {
+            grid.addUnit(unit);
+        }
+        return grid;
+    }
+
+    // Older saves stored one object per block, indexed [x][y]. Owners were kept in the players'
+    // block lists and units in the grid's unit list, so only terrain and structures come from here.
+    private List<LegacyBlock> readLegacyBlocks(JsonReader in) throws IOException {
+        List<LegacyBlock> blocks = new ArrayList<>();
+        in.beginArray();
+        for (int x = 0; in.hasNext(); x++) {
+            in.beginArray();
+            for (int y = 0; in.hasNext(); y++) {
+                LegacyBlock block = new LegacyBlock(x, y);
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "type":
+                            block.terrain = legacyTerrain(in.nextString());
+                            break;
+                        case "forestDestroyed":
+                            block.forestDestroyed = in.nextBoolean();
+                            break;
+                        case "structure":
+                            block.structure = structureAdapter.read(in);
+                            break;
+                        default:
+                            in.skipValue();
+                    }
+                }
+                in.endObject();
+                blocks.add(block);
+            }
+            in.endArray();
+        }
+        in.endArray();
+        return blocks;
+    }
+
+    private static byte legacyTerrain(String type) {
+        switch (type) {
+            case "EmptyBlock":
+                return Terrain.EMPTY;
+            case "ForestBlock":
+                return Terrain.FOREST;
+            case "VoidBlock":
+                return Terrain.VOID;
+            default:
+                throw new JsonParseException("Unknown block type " + type);
+        }
+    }
+
+    private static final class LegacyBlock {
+        final int x;
+        final int y;
+        byte terrain = Terrain.EMPTY;
+        boolean forestDestroyed;
+        Structures structure;
+
+        LegacyBlock(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    // Terrain kinds and owner ids (1..255) both fit a byte per cell
+    private static final class ByteColumn {
+        byte[] values = new byte[1024];
+        int size;
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = (byte) value;
+        }
+    }
+}
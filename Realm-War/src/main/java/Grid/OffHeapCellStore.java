@@ -0,0 +1,107 @@
+package Grid;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Fixed-width cell records in direct buffers, so huge maps add nothing for the GC to trace.
+// Record layout (12 bytes): terrain, owner id, flags, reserved, structure id (int), unit id (int)
+class OffHeapCellStore implements CellStore {
+
+    private static final int RECORD_SIZE = 12;
+    private static final int OWNER = 1;
+    private static final int FLAGS = 2;
+    private static final int STRUCTURE = 4;
+    private static final int UNIT = 8;
+    private static final byte FOREST_DESTROYED = 1;
+
+    // A single ByteBuffer is capped at 2 GB, so cells are split over fixed size pages
+    private static final int PAGE_SHIFT = 20;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer[] pages;
+
+    OffHeapCellStore(int width, int height) {
+        int cells = Math.multiplyExact(width, height);
+        this.width = width;
+        this.height = height;
+        int pageCount = (cells + PAGE_MASK) >>> PAGE_SHIFT;
+        this.pages = new ByteBuffer[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            int pageCells = Math.min(1 << PAGE_SHIFT, cells - (i << PAGE_SHIFT));
+            pages[i] = ByteBuffer.allocateDirect(pageCells * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private ByteBuffer page(int cell) {
+        return pages[cell >>> PAGE_SHIFT];
+    }
+
+    private static int offset(int cell) {
+        return (cell & PAGE_MASK) * RECORD_SIZE;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public byte getTerrain(int cell) {
+        return page(cell).get(offset(cell));
+    }
+
+    @Override
+    public void setTerrain(int cell, byte terrain) {
+        page(cell).put(offset(cell), terrain);
+    }
+
+    @Override
+    public int getOwnerId(int cell) {
+        return page(cell).get(offset(cell) + OWNER) & 0xFF;
+    }
+
+    @Override
+    public void setOwnerId(int cell, int ownerId) {
+        page(cell).put(offset(cell) + OWNER, (byte) ownerId);
+    }
+
+    @Override
+    public boolean isForestDestroyed(int cell) {
+        return (page(cell).get(offset(cell) + FLAGS) & FOREST_DESTROYED) != 0;
+    }
+
+    @Override
+    public void setForestDestroyed(int cell, boolean destroyed) {
+        ByteBuffer page = page(cell);
+        int at = offset(cell) + FLAGS;
+        byte flags = page.get(at);
+        page.put(at, (byte) (destroyed ? flags | FOREST_DESTROYED : flags & ~FOREST_DESTROYED));
+    }
+
+    @Override
+    public int getStructureId(int cell) {
+        return page(cell).getInt(offset(cell) + STRUCTURE);
+    }
+
+    @Override
+    public void setStructureId(int cell, int structureId) {
+        page(cell).putInt(offset(cell) + STRUCTURE, structureId);
+    }
+
+    @Override
+    public int getUnitId(int cell) {
+        return page(cell).getInt(offset(cell) + UNIT);
+    }
+
+    @Override
+    public void setUnitId(int cell, int unitId) {
+        page(cell).putInt(offset(cell) + UNIT, unitId);
+    }
+}
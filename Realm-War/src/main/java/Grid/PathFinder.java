@@ -0,0 +1,226 @@
+package Grid;
+
+import Units.Units;
+
+import java.util.Arrays;
+
+// Movement queries over the grid. Searches are bounded, so they work on a window around the
+// start cell and reuse the same scratch arrays: no allocation once the window has grown.
+// Rules: void cells and cells holding a unit or structure can't be walked through. A move may
+// end on an empty cell, on an enemy unit (attack) or on a friendly unit of the same type (merge).
+public class PathFinder {
+
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private final Grid grid;
+
+    // Window scratch, indexed by (y - originY) * side + (x - originX)
+    private int originX;
+    private int originY;
+    private int side;
+    private int[] seen = new int[0];
+    private int[] cost = new int[0];
+    private int[] parent = new int[0];
+    private int stamp;
+    private int[] queue = new int[0];
+    private final IntMinHeap open = new IntMinHeap();
+
+    private int[] result = new int[16];
+    private int resultSize;
+
+    PathFinder(Grid grid) {
+        this.grid = grid;
+    }
+
+    // Cells (grid cell indexes) the unit can move to this turn; read them with getResultCell
+    public int findReachable(Units unit) {
+        Position from = unit.getPosition();
+        int range = unit.getMovementRange();
+        resultSize = 0;
+        if (!grid.isValidPosition(from.getX(), from.getY()) || range <= 0)
+            return 0;
+        openWindow(from.getX(), from.getY(), range);
+
+        int start = window(from.getX(), from.getY());
+        visit(start, 0, -1);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int node = queue[head++];
+            int x = originX + node % side;
+            int y = originY + node / side;
+            int nextCost = cost[node] + 1;
+            if (nextCost > range)
+                continue;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (!grid.isValidPosition(nx, ny))
+                    continue;
+                int next = window(nx, ny);
+                if (seen[next] == stamp)
+                    continue;
+                visit(next, nextCost, node);
+                int cell = grid.getCellIndex(nx, ny);
+                if (canEndOn(unit, cell)) {
+                    addResult(cell);
+                }
+                if (isPassable(cell)) {
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return resultSize;
+    }
+
+    public boolean canReach(Units unit, Position target) {
+        Position from = unit.getPosition();
+        int range = unit.getMovementRange();
+        if (!grid.isValidPosition(target.getX(), target.getY()))
+            return false;
+        if (Math.abs(target.getX() - from.getX()) + Math.abs(target.getY() - from.getY()) > range)
+            return false;
+        if (!canEndOn(unit, grid.getCellIndex(target.getX(), target.getY())))
+            return false;
+        return findPath(unit, target, range) >= 0;
+    }
+
+    // A* from the unit to target costing at most maxCost steps. Returns the step count, or -1.
+    // The cells of the route (excluding the start) can then be read with getResultCell.
+    public int findPath(Units unit, Position target, int maxCost) {
+        Position from = unit.getPosition();
+        resultSize = 0;
+        int tx = target.getX();
+        int ty = target.getY();
+        if (!grid.isValidPosition(from.getX(), from.getY()) || !grid.isValidPosition(tx, ty))
+            return -1;
+        if (Math.abs(tx - from.getX()) + Math.abs(ty - from.getY()) > maxCost)
+            return -1;
+        if (!canEndOn(unit, grid.getCellIndex(tx, ty)))
+            return -1;
+        openWindow(from.getX(), from.getY(), maxCost);
+
+        int start = window(from.getX(), from.getY());
+        int goal = window(tx, ty);
+        visit(start, 0, -1);
+        open.clear();
+        open.push(start, heuristic(from.getX(), from.getY(), tx, ty));
+
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (node == goal) {
+                collectPath(goal);
+                return cost[goal];
+            }
+            int x = originX + node % side;
+            int y = originY + node / side;
+            // The start cell holds the mover itself; every other expanded cell must be walkable
+            if (node != start && !isPassable(grid.getCellIndex(x, y)))
+                continue;
+            int nextCost = cost[node] + 1;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (!grid.isValidPosition(nx, ny))
+                    continue;
+                int estimate = nextCost + heuristic(nx, ny, tx, ty);
+                if (estimate > maxCost)
+                    continue;
+                int next = window(nx, ny);
+                if (seen[next] == stamp && cost[next] <= nextCost)
+                    continue;
+                if (grid.getTerrain(grid.getCellIndex(nx, ny)) == CellStore.TERRAIN_VOID)
+                    continue;
+                visit(next, nextCost, node);
+                open.push(next, estimate);
+            }
+        }
+        return -1;
+    }
+
+    public int getResultCell(int i) {
+        return result[i];
+    }
+
+    public int getResultSize() {
+        return resultSize;
+    }
+
+    private boolean isPassable(int cell) {
+        return grid.getTerrain(cell) != CellStore.TERRAIN_VOID
+                && grid.getUnit(cell) == null
+                && grid.getStructure(cell) == null;
+    }
+
+    private boolean canEndOn(Units unit, int cell) {
+        if (grid.getTerrain(cell) == CellStore.TERRAIN_VOID || grid.getStructure(cell) != null)
+            return false;
+        Units occupant = grid.getUnit(cell);
+        if (occupant == null)
+            return true;
+        if (occupant == unit)
+            return false;
+        return !occupant.getOwner().equals(unit.getOwner())
+                || occupant.getType() == unit.getType();
+    }
+
+    private static int heuristic(int x, int y, int tx, int ty) {
+        return Math.abs(tx - x) + Math.abs(ty - y);
+    }
+
+    private void collectPath(int goal) {
+        int length = 0;
+        for (int node = goal; parent[node] >= 0; node = parent[node]) {
+            length++;
+        }
+        ensureResult(length);
+        resultSize = length;
+        int i = length;
+        for (int node = goal; parent[node] >= 0; node = parent[node]) {
+            result[--i] = grid.getCellIndex(originX + node % side, originY + node / side);
+        }
+    }
+
+    private void addResult(int cell) {
+        ensureResult(resultSize + 1);
+        result[resultSize++] = cell;
+    }
+
+    private void ensureResult(int size) {
+        if (size > result.length) {
+            result = Arrays.copyOf(result, Math.max(size, result.length * 2));
+        }
+    }
+
+    // Every cell within radius steps of (x, y) fits in a (2 * radius + 1) square around it
+    private void openWindow(int x, int y, int radius) {
+        side = 2 * radius + 1;
+        originX = x - radius;
+        originY = y - radius;
+        int size = side * side;
+        if (seen.length < size) {
+            seen = new int[size];
+            cost = new int[size];
+            parent = new int[size];
+            queue = new int[size];
+            stamp = 0;
+        }
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+    }
+
+    private int window(int x, int y) {
+        return (y - originY) * side + (x - originX);
+    }
+
+    private void visit(int node, int nodeCost, int from) {
+        seen[node] = stamp;
+        cost[node] = nodeCost;
+        parent[node] = from;
+    }
+}
@@ -0,0 +1,57 @@
+package Grid;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+// Maps small int ids (starting at 1, 0 = none) to objects, reusing freed ids
+class SlotTable<T> {
+
+    private Object[] items = new Object[16];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId = 1;
+
+    int add(T item) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id >= items.length) {
+                items = Arrays.copyOf(items, items.length * 2);
+            }
+        }
+        items[id] = item;
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+        return id > 0 && id < nextId ? (T) items[id] : null;
+    }
+
+    // Same ids, items passed through copy
+    <R> SlotTable<R> copy(Function<T, R> copy) {
+        SlotTable<R> table = new SlotTable<>();
+        table.items = new Object[items.length];
+        for (int id = 1; id < nextId; id++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) items[id];
+            table.items[id] = item != null ? copy.apply(item) : null;
+        }
+        table.freeIds = freeIds.clone();
+        table.freeCount = freeCount;
+        table.nextId = nextId;
+        return table;
+    }
+
+    void remove(int id) {
+        if (id <= 0 || id >= nextId || items[id] == null)
+            return;
+        items[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+}
@@ -0,0 +1,126 @@
+package Grid;
+
+import Units.Units;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+// Open addressing map keyed by (x << 32 | y), for big maps with few units
+class SparseUnitIndex implements UnitIndex {
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private Units[] values;
+    private int size;
+    private int mask;
+
+    SparseUnitIndex() {
+        allocate(64);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new Units[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public Units get(int x, int y) {
+        long key = key(x, y);
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+            if (keys[i] == EMPTY) return null;
+        }
+    }
+
+    @Override
+    public void put(int x, int y, Units unit) {
+        if (unit == null) {
+            Units old = get(x, y);
+            if (old != null) remove(x, y, old);
+            return;
+        }
+        long key = key(x, y);
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = unit;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = unit;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    @Override
+    public void remove(int x, int y, Units unit) {
+        long key = key(x, y);
+        int i = slot(key);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) return;
+            i = (i + 1) & mask;
+        }
+        if (values[i] != unit) return;
+
+        // Backward shift so probe chains stay intact without tombstones
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        size--;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public UnitIndex fork(CellStore cells, Function<Units, Units> copy) {
+        SparseUnitIndex index = new SparseUnitIndex();
+        index.keys = keys.clone();
+        index.values = new Units[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) index.values[i] = copy.apply(values[i]);
+        }
+        index.size = size;
+        index.mask = mask;
+        return index;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Units[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put((int) (oldKeys[i] >>> 32), (int) oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package Grid;
+
+import Structures.Structures;
+import Units.Units;
+
+// Incremental 64-bit Zobrist-style hash of a grid's game state. Every feature (forest,
+// owner, unit, structure, player resources) contributes a key derived by mixing its
+// values; changes XOR the old key out and the new one in, so updates are O(1) and two
+// replicas in the same state always agree. Terrain never changes after generation, so the
+// seed stands in for it.
+public final class StateHash {
+
+    private static final long FOREST = 0xBB67AE8584CAA73BL;
+    private static final long OWNER = 0x3C6EF372FE94F82BL;
+    private static final long UNIT = 0xA54FF53A5F1D36F1L;
+    private static final long STRUCTURE = 0x510E527FADE682D1L;
+    private static final long PLAYER = 0x9B05688C2B3E6C1FL;
+
+    private final long seed;
+    private final int width;
+    private long value;
+
+    StateHash(long seed, int width, int height) {
+        this.seed = seed;
+        this.width = width;
+        this.value = TerrainGenerator.mix(seed, width, height);
+    }
+
+    StateHash(StateHash other) {
+        this.seed = other.seed;
+        this.width = other.width;
+        this.value = other.value;
+    }
+
+    public long get() {
+        return value;
+    }
+
+    void toggleForestDestroyed(int cell) {
+        value ^= TerrainGenerator.mix(seed ^ FOREST, cell, 1);
+    }
+
+    void toggleOwner(int cell, int ownerId) {
+        if (ownerId != 0)
+            value ^= TerrainGenerator.mix(seed ^ OWNER, cell, ownerId);
+    }
+
+    // Units and structures call these around their own changes while they are on the grid
+
+    public void toggleUnit(Units unit) {
+        Position position = unit.getPosition();
+        int cell = position.getY() * width + position.getX();
+        long key = TerrainGenerator.mix(seed ^ UNIT, cell, unit.getType().getId());
+        value ^= TerrainGenerator.mix(key, unit.getLevel() << 8 | unit.getOwnerId(), unit.getHitPoints());
+    }
+
+    public void toggleStructure(Structures structure, int cell) {
+        long key = TerrainGenerator.mix(seed ^ STRUCTURE, cell, structure.getTypeId());
+        int ownerId = structure.getOwner() != null ? structure.getOwner().getId() : 0;
+        value ^= TerrainGenerator.mix(key, structure.getCurrentLevel() << 8 | ownerId, structure.getDurability());
+    }
+
+    public void togglePlayer(int playerId, int gold, int food) {
+        value ^= TerrainGenerator.mix(TerrainGenerator.mix(seed ^ PLAYER, playerId, 0), gold, food);
+    }
+}
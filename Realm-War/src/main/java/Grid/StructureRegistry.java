@@ -0,0 +1,66 @@
+package Grid;
+
+import RealmWar.Player;
+import Structures.Structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Placed structures by owner id and type, kept up to date by Grid.placeStructure and by
+// Structures.setOwner. The other direction, structure to cell, is Structures.getCell().
+public final class StructureRegistry {
+
+    private static final List<Structures> NONE = List.of();
+
+    // Index ownerId * Structures.TYPES + type; owner id 0 holds unowned structures
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Structures>[] lists = new List[0];
+
+    void add(Structures structure) {
+        list(ownerId(structure.getOwner()), structure.getTypeId(), true).add(structure);
+    }
+
+    void remove(Structures structure) {
+        List<Structures> list = list(ownerId(structure.getOwner()), structure.getTypeId(), false);
+        if (list != null)
+            list.remove(structure);
+    }
+
+    // Called by a placed structure whose owner has just changed
+    public void ownerChanged(Structures structure, Player oldOwner) {
+        List<Structures> list = list(ownerId(oldOwner), structure.getTypeId(), false);
+        if (list != null)
+            list.remove(structure);
+        add(structure);
+    }
+
+    // Read only; changes as structures are built, destroyed or change hands
+    public List<Structures> get(Player owner, int type) {
+        List<Structures> list = list(ownerId(owner), type, false);
+        return list != null ? list : NONE;
+    }
+
+    public int count(Player owner, int type) {
+        return get(owner, type).size();
+    }
+
+    private static int ownerId(Player owner) {
+        return owner != null ? owner.getId() : 0;
+    }
+
+    private List<Structures> list(int ownerId, int type, boolean create) {
+        int index = ownerId * Structures.TYPES + type;
+        if (index >= lists.length) {
+            if (!create)
+                return null;
+            lists = Arrays.copyOf(lists, Math.max(index + 1, lists.length * 2));
+        }
+        List<Structures> list = lists[index];
+        if (list == null && create) {
+            list = new ArrayList<>(2);
+            lists[index] = list;
+        }
+        return list;
+    }
+}
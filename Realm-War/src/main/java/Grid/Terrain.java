@@ -0,0 +1,32 @@
+package Grid;
+
+// Terrain kinds of a cell, as small codes, and what an owned cell of each kind yields per turn.
+// A forest that has been cut down is its own kind, so a yield is a single table lookup.
+public final class Terrain {
+
+    public static final byte EMPTY = 0;
+    public static final byte FOREST = 1;
+    public static final byte VOID = 2;
+    // FOREST with the destroyed bit set: FOREST | 2
+    public static final byte CLEARED_FOREST = 3;
+    public static final int KINDS = 4;
+
+    private static final int[] GOLD = {1, 0, 0, 0};
+    private static final int[] FOOD = {0, 1, 0, 0};
+
+    private Terrain() {
+    }
+
+    // Kind of a cell from its stored terrain and forest flag; only forests are ever destroyed
+    static byte kind(byte terrain, boolean forestDestroyed) {
+        return (byte) (terrain | (forestDestroyed ? 2 : 0));
+    }
+
+    public static int goldYield(int kind) {
+        return GOLD[kind];
+    }
+
+    public static int foodYield(int kind) {
+        return FOOD[kind];
+    }
+}
@@ -0,0 +1,111 @@
+package Grid;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Generates terrain one chunk at a time from the map seed, so any chunk can be rebuilt on its own.
+// Output depends only on (seed, chunk), never on which thread or in which order chunks are built.
+public final class TerrainGenerator {
+
+    public static final int CHUNK_SIZE = 64;
+
+    // Seeded saves record this and rebuild their terrain from it, so bump it whenever the
+    // terrain made for a given seed changes
+    public static final int VERSION = 1;
+
+    private static final ThreadLocal<long[]> RANKS =
+            ThreadLocal.withInitial(() -> new long[CHUNK_SIZE * CHUNK_SIZE]);
+
+    private TerrainGenerator() {
+    }
+
+    // Fills the terrain of a whole store, one fork-join task per chunk
+    public static void generate(CellStore store, long seed) {
+        int width = store.getWidth();
+        int height = store.getHeight();
+        int chunksX = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int chunksY = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        IntStream.range(0, chunksX * chunksY).parallel().forEach(index -> {
+            int chunkX = index % chunksX;
+            int chunkY = index / chunksX;
+            int chunkWidth = Math.min(CHUNK_SIZE, width - chunkX * CHUNK_SIZE);
+            int chunkHeight = Math.min(CHUNK_SIZE, height - chunkY * CHUNK_SIZE);
+            byte[] terrain = new byte[chunkWidth * chunkHeight];
+            fillChunk(seed, chunkX, chunkY, chunkWidth, chunkHeight, terrain);
+            for (int y = 0; y < chunkHeight; y++) {
+                int row = (chunkY * CHUNK_SIZE + y) * width + chunkX * CHUNK_SIZE;
+                for (int x = 0; x < chunkWidth; x++) {
+                    store.setTerrain(row + x, terrain[y * chunkWidth + x]);
+                }
+            }
+        });
+    }
+
+    // Fills terrain[(y * chunkWidth) + x] for the chunk at (chunkX, chunkY).
+    // Cells are ranked by a noise value: the lowest 10% become void, the next 80% forest
+    // and the highest ones empty land, so voids and clearings form small clusters.
+    public static void fillChunk(long seed, int chunkX, int chunkY, int chunkWidth, int chunkHeight, byte[] terrain) {
+        int count = chunkWidth * chunkHeight;
+        int voidCount = count / 10;
+        int forestCount = (int) (count * 0.8);
+
+        long[] ranks = RANKS.get();
+        for (int y = 0; y < chunkHeight; y++) {
+            for (int x = 0; x < chunkWidth; x++) {
+                int local = y * chunkWidth + x;
+                float n = noise(seed, chunkX * CHUNK_SIZE + x, chunkY * CHUNK_SIZE + y);
+                ranks[local] = ((long) Float.floatToIntBits(n) << 32) | local;
+            }
+        }
+        Arrays.sort(ranks, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            int local = (int) ranks[i];
+            if (i < voidCount) {
+                terrain[local] = CellStore.TERRAIN_VOID;
+            } else if (i < voidCount + forestCount) {
+                terrain[local] = CellStore.TERRAIN_FOREST;
+            } else {
+                terrain[local] = CellStore.TERRAIN_EMPTY;
+            }
+        }
+    }
+
+    // Two octaves of value noise plus some per-cell jitter, always in [0, 1)
+    private static float noise(long seed, int x, int y) {
+        return valueNoise(seed, x, y, 8) * 0.5f
+                + valueNoise(seed ^ 0x5DEECE66DL, x, y, 3) * 0.25f
+                + lattice(seed ^ 0x2545F4914F6CDD1DL, x, y) * 0.25f;
+    }
+
+    private static float valueNoise(long seed, int x, int y, int scale) {
+        int gx = Math.floorDiv(x, scale);
+        int gy = Math.floorDiv(y, scale);
+        float fx = smooth((x - gx * scale) / (float) scale);
+        float fy = smooth((y - gy * scale) / (float) scale);
+
+        float top = lerp(lattice(seed, gx, gy), lattice(seed, gx + 1, gy), fx);
+        float bottom = lerp(lattice(seed, gx, gy + 1), lattice(seed, gx + 1, gy + 1), fx);
+        return lerp(top, bottom, fy);
+    }
+
+    private static float smooth(float t) {
+        return t * t * (3 - 2 * t);
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
+    }
+
+    private static float lattice(long seed, int x, int y) {
+        return (mix(seed, x, y) >>> 40) / (float) (1 << 24);
+    }
+
+    static long mix(long seed, int x, int y) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) x << 32) ^ (y & 0xFFFFFFFFL));
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
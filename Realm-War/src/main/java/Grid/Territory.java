@@ -0,0 +1,134 @@
+package Grid;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Set of grid cell indexes stored as a bitset, one bit per cell
+public class Territory {
+
+    private long[] words;
+    private int count;
+
+    public Territory() {
+        this.words = new long[1];
+    }
+
+    public Territory(Territory other) {
+        this.words = other.words.clone();
+        this.count = other.count;
+    }
+
+    public boolean add(int cell) {
+        int word = cell >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        long bit = 1L << cell;
+        if ((words[word] & bit) != 0)
+            return false;
+        words[word] |= bit;
+        count++;
+        return true;
+    }
+
+    public boolean remove(int cell) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        if (word >= words.length || (words[word] & bit) == 0)
+            return false;
+        words[word] &= ~bit;
+        count--;
+        return true;
+    }
+
+    public boolean contains(int cell) {
+        int word = cell >>> 6;
+        return word < words.length && (words[word] & (1L << cell)) != 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+        count = 0;
+    }
+
+    // First cell >= from in the set, or -1
+    public int nextCell(int from) {
+        int word = from >>> 6;
+        if (word >= words.length)
+            return -1;
+        long bits = words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0)
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            if (++word == words.length)
+                return -1;
+            bits = words[word];
+        }
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    // Adds every cell of other to this territory
+    public void or(Territory other) {
+        if (other.words.length > words.length) {
+            words = Arrays.copyOf(words, other.words.length);
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+        recount();
+    }
+
+    // Keeps only the cells also in other
+    public void and(Territory other) {
+        int shared = Math.min(words.length, other.words.length);
+        for (int i = 0; i < shared; i++) {
+            words[i] &= other.words[i];
+        }
+        Arrays.fill(words, shared, words.length, 0);
+        recount();
+    }
+
+    // Removes every cell of other from this territory
+    public void andNot(Territory other) {
+        int shared = Math.min(words.length, other.words.length);
+        for (int i = 0; i < shared; i++) {
+            words[i] &= ~other.words[i];
+        }
+        recount();
+    }
+
+    // Number of cells in both territories, without building the intersection
+    public int intersectionSize(Territory other) {
+        int shared = Math.min(words.length, other.words.length);
+        int total = 0;
+        for (int i = 0; i < shared; i++) {
+            total += Long.bitCount(words[i] & other.words[i]);
+        }
+        return total;
+    }
+
+    private void recount() {
+        int total = 0;
+        for (long word : words) {
+            total += Long.bitCount(word);
+        }
+        count = total;
+    }
+}
@@ -0,0 +1,28 @@
+package Grid;
+
+import Units.Units;
+
+import java.util.function.Function;
+
+// Position -> unit lookup used by Grid instead of scanning the units list
+interface UnitIndex {
+
+    Units get(int x, int y);
+
+    void put(int x, int y, Units unit);
+
+    // Only clears the cell if it still holds this unit
+    void remove(int x, int y, Units unit);
+
+    void clear();
+
+    // Same placements over the given store, with every unit passed through copy
+    UnitIndex fork(CellStore cells, Function<Units, Units> copy);
+
+    static UnitIndex create(CellStore cells) {
+        if ((long) cells.getWidth() * cells.getHeight() <= DenseUnitIndex.MAX_CELLS) {
+            return new DenseUnitIndex(cells);
+        }
+        return new SparseUnitIndex();
+    }
+}
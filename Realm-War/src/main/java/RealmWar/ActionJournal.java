@@ -0,0 +1,241 @@
+package RealmWar;
+
+import Engine.ActionLog;
+import Engine.ActionResult;
+import Engine.Actions;
+import Engine.RulesEngine;
+import Utils.BinaryIn;
+import Utils.BufferPool;
+import Utils.GameLog;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+// Autosave: every action the engine applies is appended to a journal that follows the last
+// full snapshot, so a crashed game comes back as that snapshot plus a replay of the journal.
+//
+// Journal layout: magic int, version short, state hash (long) of the snapshot it follows,
+// then frames of payload length int, payload, CRC32 of the payload int. Each frame is one
+// group commit: at the end of a turn, on each resource tick, or when the buffer fills.
+// A record is a byte (kind | type << 4), then, for all but END_TURN and COLLECT_RESOURCES,
+// varint from cell + 1 and varint to cell + 1. Every few turns a new snapshot replaces the
+// old one and the journal starts over.
+public final class ActionJournal implements ActionLog, AutoCloseable {
+
+    private static final int MAGIC = 0x52574A4C; // "RWJL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 14;
+    // Kind byte and two 5-byte varints
+    private static final int MAX_RECORD = 11;
+
+    private final Game game;
+    private final Path snapshotPath;
+    private final FileChannel channel;
+    private final ByteBuffer frame = BufferPool.acquire();
+    private final CRC32 crc = new CRC32();
+    private int turnsSinceSnapshot;
+    private boolean closed;
+
+    private ActionJournal(Game game, Path snapshotPath, FileChannel channel) {
+        this.game = game;
+        this.snapshotPath = snapshotPath;
+        this.channel = channel;
+        frame.position(4);
+    }
+
+    // Takes a first snapshot, then journals every action of game's engine from here on
+    public static ActionJournal start(Game game, Path snapshotPath, Path journalPath) throws IOException {
+        if (!Actions.canAddress(game.getGrid()))
+            throw new IOException("Grid is too large to journal: more than " + Actions.MAX_CELLS + " cells");
+        Path dir = journalPath.toAbsolutePath().getParent();
+        if (dir != null)
+            Files.createDirectories(dir);
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        ActionJournal journal = new ActionJournal(game, snapshotPath, channel);
+        try {
+            journal.snapshot();
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        game.getEngine().setActionLog(journal);
+        return journal;
+    }
+
+    @Override
+    public void record(long action) {
+        if (closed)
+            return;
+        int kind = Actions.kind(action);
+        frame.put((byte) (kind | Actions.type(action) << 4));
+        if (kind != Actions.END_TURN && kind != Actions.COLLECT_RESOURCES) {
+            putVarint(Actions.from(action) + 1);
+            putVarint(Actions.to(action) + 1);
+        }
+        try {
+            if (kind == Actions.END_TURN && ++turnsSinceSnapshot >= Config.JOURNAL_SNAPSHOT_TURNS)
+                snapshot();
+            else if (kind == Actions.END_TURN || kind == Actions.COLLECT_RESOURCES
+                    || frame.remaining() < MAX_RECORD + 4)
+                commit();
+        } catch (IOException e) {
+            System.err.println("Autosave stopped: " + e.getMessage());
+            try {
+                close();
+            } catch (IOException ignored) {
+                // Already reported
+            }
+        }
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            frame.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        frame.put((byte) value);
+    }
+
+    // Writes the records since the last commit as one frame
+    public void commit() throws IOException {
+        int length = frame.position() - 4;
+        if (length == 0)
+            return;
+        frame.putInt(0, length);
+        ByteBuffer payload = frame.duplicate();
+        payload.position(4).limit(4 + length);
+        crc.reset();
+        crc.update(payload);
+        frame.putInt((int) crc.getValue());
+        frame.flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        if (Config.JOURNAL_SYNC)
+            channel.force(false);
+        frame.clear();
+        frame.position(4);
+    }
+
+    // Replaces the snapshot with the current game and empties the journal. The new snapshot
+    // is in place before the journal is reset; until then the old journal names the old
+    // snapshot's hash, so recovery skips it rather than replaying it twice.
+    public void snapshot() throws IOException {
+        commit();
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        game.saveBinary(tmp.toString(), true);
+        Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel.truncate(0);
+        channel.position(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putShort((short) VERSION).putLong(game.getEngine().getGrid().getStateHash());
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+        turnsSinceSnapshot = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        game.getEngine().setActionLog(null);
+        try {
+            commit();
+        } finally {
+            BufferPool.release(frame);
+            channel.close();
+        }
+    }
+
+    // The game as of the last commit: the snapshot, plus the journal if it follows that snapshot.
+    // Replay stops at the first torn or damaged frame.
+    public static Game recover(Path snapshotPath, Path journalPath) throws IOException {
+        Game game = new Game(new ArrayList<>(), 1, 1).loadGame(snapshotPath.toString());
+        if (game == null)
+            throw new IOException("Cannot read autosave " + snapshotPath);
+        if (!Files.exists(journalPath))
+            return game;
+
+        RulesEngine engine = game.getEngine();
+        int replayed = 0;
+        try (BinaryIn in = new BinaryIn(journalPath)) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION
+                    || in.readLong() != engine.getGrid().getStateHash())
+                return game;
+            while (true) {
+                byte[] payload = readFrame(in);
+                if (payload == null)
+                    break;
+                int count = GameLog.quietly(() -> replay(engine, payload));
+                if (count < 0) {
+                    System.err.println("Autosave journal does not match its snapshot; replay stopped");
+                    break;
+                }
+                replayed += count;
+            }
+        } catch (EOFException e) {
+            // Torn header: the snapshot alone is the latest state
+        }
+        System.out.println("Recovered game: replayed " + replayed + " actions");
+        return game;
+    }
+
+    private static byte[] readFrame(BinaryIn in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > BufferPool.BUFFER_SIZE)
+                return null;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return in.readInt() == (int) crc.getValue() ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    // Number of actions replayed, or -1 if one of them was refused
+    private static int replay(RulesEngine engine, byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        int count = 0;
+        while (in.hasRemaining()) {
+            int head = in.get() & 0xFF;
+            int kind = head & 0xF;
+            if (kind == Actions.END_TURN) {
+                engine.endTurn();
+            } else if (kind == Actions.COLLECT_RESOURCES) {
+                engine.collectResources();
+            } else {
+                long action = Actions.encode(kind, head >>> 4, getVarint(in) - 1, getVarint(in) - 1);
+                if (Actions.apply(engine, action) != ActionResult.OK)
+                    return -1;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package RealmWar;
+
+import AI.MctsAgent;
+import AI.PlayerAgent;
+import AI.ScriptedAgent;
+import Engine.GameEvent;
+import Engine.RulesEngine;
+import Engine.VirtualClock;
+import Utils.GameLog;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Headless tournament mode: plays many seeded games on virtual clocks across all cores and
+// writes win rates, game lengths and average resource curves to a JSON summary.
+//
+//   java RealmWar.BatchRunner --games 1000 --players 2 --width 10 --height 10 --seed 1
+//        --max-turns 400 --threads 8 --agent mcts,scripted --iterations 200 [--think-millis 1000]
+//        --out batch-summary.json [--verbose]
+// --agent takes one agent per seat, repeating the list if it is shorter than the player count.
+// MCTS runs single threaded here (games already fill the cores) and is limited only by its
+// iteration cap, so results depend on the seeds alone. --think-millis adds a wall-clock
+// budget and the turn timer, which makes results depend on machine load.
+public class BatchRunner {
+
+    public static class Options {
+        int games = 100;
+        int players = 2;
+        int width = Config.GRID_WIDTH;
+        int height = Config.GRID_HEIGHT;
+        long seed = 1;
+        int maxTurns = 400;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String agent = "scripted";
+        long thinkMillis = 0;
+        int iterations = 200;
+        String out = "batch-summary.json";
+        boolean verbose;
+    }
+
+    public static class MatchResult {
+        long seed;
+        int winnerId;
+        int turns;
+        // Per seat, per full round
+        List<int[]> gold = new ArrayList<>();
+        List<int[]> food = new ArrayList<>();
+    }
+
+    public static class Summary {
+        int games;
+        int players;
+        int width;
+        int height;
+        long firstSeed;
+        int maxTurns;
+        int threads;
+        String agent;
+        long elapsedMillis;
+        double gamesPerSecond;
+        int draws;
+        int[] wins;
+        double[] winRates;
+        double averageTurns;
+        double[][] averageGold;
+        double[][] averageFood;
+    }
+
+    public static void main(String[] args) {
+        Options options = parse(args);
+        Summary summary = run(options);
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (FileWriter writer = new FileWriter(options.out)) {
+            gson.toJson(summary, writer);
+        } catch (IOException e) {
+            System.err.println("Error writing summary: " + e.getMessage());
+        }
+        System.out.println(summary.games + " games in " + summary.elapsedMillis + " ms (" +
+                String.format("%.1f", summary.gamesPerSecond) + " games/s), summary at " + options.out);
+    }
+
+    public static Summary run(Options options) {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(options.threads);
+        List<MatchResult> results;
+        try {
+            results = pool.submit(() -> IntStream.range(0, options.games).parallel()
+                    .mapToObj(i -> options.verbose
+                            ? playMatch(options, options.seed + i, agentFactory(options))
+                            : GameLog.quietly(() -> playMatch(options, options.seed + i, agentFactory(options))))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return summarize(options, results, System.nanoTime() - start);
+    }
+
+    static IntFunction<PlayerAgent> agentFactory(Options options) {
+        String[] names = options.agent.split(",");
+        return seat -> {
+            String name = names[seat % names.length].trim();
+            switch (name) {
+                case "scripted":
+                    return new ScriptedAgent();
+                case "mcts":
+                    return new MctsAgent(1, options.thinkMillis, options.iterations, 2);
+                default:
+                    throw new IllegalArgumentException("Unknown agent: " + name);
+            }
+        };
+    }
+
+    // One complete game, driven turn by turn on its own virtual clock
+    public static MatchResult playMatch(Options options, long seed, IntFunction<PlayerAgent> agents) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 1; i <= options.players; i++) {
+            players.add(new Player("Player " + i, i));
+        }
+        Game game = new Game(players, options.width, options.height, seed);
+        RulesEngine engine = game.getEngine();
+        players = game.getPlayers();
+
+        PlayerAgent[] seats = new PlayerAgent[players.size()];
+        for (int i = 0; i < seats.length; i++) {
+            seats[i] = agents.apply(i);
+        }
+
+        MatchResult result = new MatchResult();
+        result.seed = seed;
+        int[] turns = {0};
+        engine.addListener(event -> {
+            if (event.getType() == GameEvent.Type.TURN_STARTED)
+                turns[0]++;
+        });
+
+        VirtualClock clock = new VirtualClock();
+        Random random = new Random(seed);
+        engine.start(clock);
+        seats[engine.getCurrentPlayerIndex()].playTurn(engine, random);
+
+        while (!engine.isGameOver() && turns[0] < options.maxTurns) {
+            int turn = turns[0];
+            clock.runUntil(Long.MAX_VALUE, () -> turns[0] != turn || engine.isGameOver());
+            if (turns[0] % players.size() == 0) {
+                int[] gold = new int[players.size()];
+                int[] food = new int[players.size()];
+                for (int i = 0; i < gold.length; i++) {
+                    gold[i] = players.get(i).getGold();
+                    food[i] = players.get(i).getFood();
+                }
+                result.gold.add(gold);
+                result.food.add(food);
+            }
+            if (!engine.isGameOver())
+                seats[engine.getCurrentPlayerIndex()].playTurn(engine, random);
+        }
+        engine.stop();
+
+        result.turns = turns[0];
+        Player winner = engine.getWinner();
+        result.winnerId = winner == null ? 0 : winner.getId();
+        return result;
+    }
+
+    static Summary summarize(Options options, List<MatchResult> results, long elapsedNanos) {
+        Summary summary = new Summary();
+        summary.games = results.size();
+        summary.players = options.players;
+        summary.width = options.width;
+        summary.height = options.height;
+        summary.firstSeed = options.seed;
+        summary.maxTurns = options.maxTurns;
+        summary.threads = options.threads;
+        summary.agent = options.agent;
+        summary.elapsedMillis = elapsedNanos / 1_000_000;
+        summary.gamesPerSecond = results.size() / Math.max(1e-9, elapsedNanos / 1e9);
+        summary.wins = new int[options.players];
+        summary.winRates = new double[options.players];
+
+        int rounds = 0;
+        long totalTurns = 0;
+        for (MatchResult result : results) {
+            totalTurns += result.turns;
+            rounds = Math.max(rounds, result.gold.size());
+            if (result.winnerId == 0) {
+                summary.draws++;
+            } else {
+                summary.wins[result.winnerId - 1]++;
+            }
+        }
+        summary.averageTurns = results.isEmpty() ? 0 : (double) totalTurns / results.size();
+        for (int i = 0; i < options.players; i++) {
+            summary.winRates[i] = results.isEmpty() ? 0 : (double) summary.wins[i] / results.size();
+        }
+
+        // Curves average over the games still running in each round
+        summary.averageGold = new double[options.players][rounds];
+        summary.averageFood = new double[options.players][rounds];
+        for (int round = 0; round < rounds; round++) {
+            int running = 0;
+            for (MatchResult result : results) {
+                if (round >= result.gold.size())
+                    continue;
+                running++;
+                for (int seat = 0; seat < options.players; seat++) {
+                    summary.averageGold[seat][round] += result.gold.get(round)[seat];
+                    summary.averageFood[seat][round] += result.food.get(round)[seat];
+                }
+            }
+            for (int seat = 0; seat < options.players; seat++) {
+                summary.averageGold[seat][round] /= running;
+                summary.averageFood[seat][round] /= running;
+            }
+        }
+        return summary;
+    }
+
+    static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--verbose")) {
+                options.verbose = true;
+                continue;
+            }
+            if (i + 1 >= args.length)
+                throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--games": options.games = Integer.parseInt(value); break;
+                case "--players": options.players = Integer.parseInt(value); break;
+                case "--width": options.width = Integer.parseInt(value); break;
+                case "--height": options.height = Integer.parseInt(value); break;
+                case "--seed": options.seed = Long.parseLong(value); break;
+                case "--max-turns": options.maxTurns = Integer.parseInt(value); break;
+                case "--threads": options.threads = Integer.parseInt(value); break;
+                case "--agent": options.agent = value; break;
+                case "--think-millis": options.thinkMillis = Long.parseLong(value); break;
+                case "--iterations": options.iterations = Integer.parseInt(value); break;
+                case "--out": options.out = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (options.players < 2 || options.players > 4)
+            throw new IllegalArgumentException("Players must be between 2 and 4");
+        if (options.iterations <= 0 && options.thinkMillis <= 0)
+            throw new IllegalArgumentException("MCTS needs --iterations or --think-millis");
+        return options;
+    }
+}
@@ -1,6 +1,22 @@
 package RealmWar;
 
 public class Config {
-    public static final int GRID_WIDTH = 10;
-    public static final int GRID_HEIGHT = 10;
+    public static final int GRID_WIDTH = Integer.getInteger("realmwar.grid.width", 10);
+    public static final int GRID_HEIGHT = Integer.getInteger("realmwar.grid.height", 10);
+
+    // Cell store used by Grid: "heap", "offheap", "chunked", or "auto" to pick by map size
+    public static final String CELL_STORE = System.getProperty("realmwar.cellStore", "auto");
+    // From this many cells on, "auto" keeps the grid off the Java heap
+    public static final long OFF_HEAP_MIN_CELLS = Long.getLong("realmwar.offHeapMinCells", 1L << 24);
+    // From this many cells on, "auto" generates 64x64 chunks on first touch and pages cold ones to disk
+    public static final long CHUNKED_MIN_CELLS = Long.getLong("realmwar.chunkedMinCells", 1L << 26);
+    public static final int MAX_RESIDENT_CHUNKS = Integer.getInteger("realmwar.maxResidentChunks", 1024);
+
+    // Time a computer player may think about each action
+    public static final long AI_THINK_MILLIS = Long.getLong("realmwar.ai.thinkMillis", 1000);
+
+    // Autosave journal: full snapshot every this many turns, and whether each commit waits for the disk
+    public static final int JOURNAL_SNAPSHOT_TURNS = Integer.getInteger("realmwar.journal.snapshotTurns", 20);
+    public static final boolean JOURNAL_SYNC =
+            Boolean.parseBoolean(System.getProperty("realmwar.journal.sync", "true"));
 }
@@ -2,24 +2,43 @@ package RealmWar;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import Utils.BinaryIn;
+import Utils.BinaryOut;
 import Utils.RuntimeTypeAdapterFactory;
 
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.*;
 
 import Blocks.*;
 import Grid.*;
 import Structures.*;
 import Units.*;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import Engine.RulesEngine;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import java.util.concurrent.*;
 
 public class Game {
 
+    // "RWSV"; bump SAVE_VERSION whenever the binary layout changes
+    private static final int SAVE_MAGIC = 0x52575356;
+    private static final int SAVE_VERSION = 2;
+    private static final Type PLAYER_LIST = new TypeToken<List<Player>>() {}.getType();
+
     Scanner scanner = new Scanner(System.in);
     private ScheduledExecutorService scheduler;
     private ScheduledFuture<?> turnTask;
@@ -29,20 +48,32 @@ public class Game {
     private int nowPlayerIndex;
     private Grid grid;
     private boolean isGameOver;
-    private GameController gc;
+    private RulesEngine engine;
     private long turnStartTime;
     private static final int TURN_DURATION = 30;
     private int remainingTurnTime = 30;
 
     public Game(List<Player> playerNames, int width, int height) {
+        this(playerNames, new Grid(width, height));
+    }
+
+    // Same seed, same map: used for replays and simulations
+    public Game(List<Player> playerNames, int width, int height, long seed) {
+        this(playerNames, new Grid(width, height, seed));
+    }
+
+    private Game(List<Player> playerNames, Grid grid) {
         this.players = new ArrayList<>();
         for (Player p : playerNames) {
             this.players.add(new Player(p.getName(), p.getId()));
         }
         this.nowPlayerIndex = 0;
-        this.grid = new Grid(width, height);
+        this.grid = grid;
+        for (Player p : players) {
+            grid.registerPlayer(p);
+        }
         this.isGameOver = false;
-        this.gc = new GameController(players, grid, scanner);
+        this.engine = new RulesEngine(players, grid);
         initGameBoard();
     }
 
@@ -77,6 +108,19 @@ public class Game {
         return positions;
     }
 
+    // Independent copy for search and what-if play; see Grid.fork for the cost
+    public Game fork() {
+        Game copy = new Game(engine.fork());
+        copy.isGameOver = isGameOver;
+        return copy;
+    }
+
+    private Game(RulesEngine forkedEngine) {
+        this.players = forkedEngine.getPlayers();
+        this.grid = forkedEngine.getGrid();
+        this.engine = forkedEngine;
+    }
+
     public Grid getGrid() {
         return grid;
     }
@@ -85,6 +129,10 @@ public class Game {
         return players;
     }
 
+    public RulesEngine getEngine() {
+        return engine;
+    }
+
     // --- Save game state to JSON file ---
     private Gson createGsonWithAdapters() {
         RuntimeTypeAdapterFactory<Structures> structureAdapter =
@@ -112,94 +160,165 @@ public class Game {
                 .registerTypeAdapterFactory(structureAdapter)
                 .registerTypeAdapterFactory(unitsAdapter)
                 .registerTypeAdapterFactory(blocksAdapter)
-                .setPrettyPrinting()
+                .registerTypeAdapterFactory(GridTypeAdapter.FACTORY)
                 .create();
     }
 
+    // Binary unless the path ends in .json, which is kept for export and for old saves.
+    // Saving leaves the game untouched, so a running journal still matches it.
     public void saveGame(String filePath) {
-        Gson gson = createGsonWithAdapters();
-        try (FileWriter writer = new FileWriter(filePath)) {
-            JsonObject gameData = new JsonObject();
-
-            for (Player player : players) {
-                player.generateResources();
-            }
-
-            JsonElement playersJson = gson.toJsonTree(players);
-            gameData.add("players", playersJson);
-
-            JsonElement gridJson = gson.toJsonTree(grid);
-            gameData.add("grid", gridJson);
-
-            gameData.addProperty("currentPlayerIndex", gc.getCurrentPlayerIndex());
-
-            gson.toJson(gameData, writer);
+        try {
+            if (filePath.toLowerCase().endsWith(".json"))
+                saveJson(filePath);
+            else
+                saveBinary(filePath, false);
             System.out.println("Saved successfully at " + filePath);
         } catch (IOException e) {
             System.err.println("Error in saving Game: " + e.getMessage());
         }
     }
 
-    // --- Load game state from JSON file ---
-    public Game loadGame(String filePath) {
+    // Streamed straight to the file; the document is never held in memory
+    private void saveJson(String filePath) throws IOException {
         Gson gson = createGsonWithAdapters();
-        try (FileReader reader = new FileReader(filePath)) {
-            JsonObject gameData = gson.fromJson(reader, JsonObject.class);
+        try (JsonWriter out = gson.newJsonWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(filePath), StandardCharsets.UTF_8), 1 << 16))) {
+            out.beginObject();
+            out.name("players");
+            gson.toJson(players, PLAYER_LIST, out);
+            out.name("grid");
+            gson.toJson(grid, Grid.class, out);
+            out.name("currentPlayerIndex").value(engine.getCurrentPlayerIndex());
+            out.endObject();
+        }
+    }
 
-            //Deserialize players
-            Player[] loadedPlayers = gson.fromJson(gameData.get("players"), Player[].class);
-            List<Player> newPlayers = new ArrayList<>(Arrays.asList(loadedPlayers));
+    // Header: magic int, version short. Then a varint player count and the player records,
+    // the current player index (int) and the grid section, see GridBinaryCodec.
+    // Journals use it directly for their snapshots.
+    void saveBinary(String filePath, boolean sync) throws IOException {
+        try (BinaryOut out = new BinaryOut(Paths.get(filePath))) {
+            out.writeInt(SAVE_MAGIC);
+            out.writeShort(SAVE_VERSION);
+            out.writeVarint(players.size());
+            for (Player player : players) {
+                player.writeRecord(out);
+            }
+            out.writeInt(engine.getCurrentPlayerIndex());
+            GridBinaryCodec.write(out, grid);
+            if (sync)
+                out.sync();
+        }
+    }
 
-            //Deserialize grid
-            Grid loadedGrid = gson.fromJson(gameData.get("grid"), Grid.class);
+    // --- Load game state from a binary or JSON save, told apart by the magic number ---
+    public Game loadGame(String filePath) {
+        try {
+            return isBinarySave(filePath) ? loadBinary(filePath) : loadJson(filePath);
+        } catch (IOException | JsonParseException e) {
+            e.printStackTrace();
+            System.err.println("Failed to load game." + e.getMessage());
+            return null;
+        }
+    }
 
-            //Create new game object
-            Game newGame = new Game(newPlayers, loadedGrid.getWidth(), loadedGrid.getHeight());
-            newGame.grid = loadedGrid;
-            newGame.players = newPlayers;
+    private static boolean isBinarySave(String filePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) {
+            return in.readInt() == SAVE_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
 
-            int currentPlayerIndex = gameData.get("currentPlayerIndex").getAsInt();
-            newGame.gc.setCurrentPlayerIndex(currentPlayerIndex);
+    private Game loadBinary(String filePath) throws IOException {
+        try (BinaryIn in = new BinaryIn(Paths.get(filePath))) {
+            if (in.readInt() != SAVE_MAGIC)
+                throw new IOException("Not a Realm War save: " + filePath);
+            int version = in.readShort();
+            if (version < 1 || version > SAVE_VERSION)
+                throw new IOException("Unsupported save version " + version);
+            int playerCount = in.readVarint();
+            List<Player> newPlayers = new ArrayList<>(playerCount);
+            for (int i = 0; i < playerCount; i++) {
+                newPlayers.add(Player.readRecord(in));
+            }
+            int currentPlayerIndex = in.readInt();
+            Grid loadedGrid = GridBinaryCodec.read(in, newPlayers, version);
+            return restoreGame(newPlayers, loadedGrid, currentPlayerIndex);
+        }
+    }
 
-            fixOwners(newGame);
+    private Game loadJson(String filePath) throws IOException {
+        Gson gson = createGsonWithAdapters();
+        try (JsonReader in = gson.newJsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8), 1 << 16))) {
+            List<Player> newPlayers = null;
+            Grid loadedGrid = null;
+            int currentPlayerIndex = 0;
+
+            //Read the top-level fields as they come, straight into game objects
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "players":
+                        List<Player> loadedPlayers = gson.fromJson(in, PLAYER_LIST);
+                        newPlayers = new ArrayList<>(loadedPlayers);
+                        break;
+                    case "grid":
+                        loadedGrid = gson.fromJson(in, Grid.class);
+                        break;
+                    case "currentPlayerIndex":
+                        currentPlayerIndex = in.nextInt();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (newPlayers == null || loadedGrid == null)
+                throw new JsonParseException("Save has no players or no grid");
+
+            //Older saves kept cell owners in each player's block list instead of on the grid
+            for (Player player : newPlayers) {
+                for (Position position : player.takeLegacyOwnedBlocks()) {
+                    loadedGrid.setOwner(loadedGrid.getCellIndex(position.getX(), position.getY()), player);
+                }
+            }
 
-            return newGame;
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.err.println("Failed to load game." + e.getMessage());
-            return null;
+            return restoreGame(newPlayers, loadedGrid, currentPlayerIndex);
         }
     }
 
-    public int getCurrentPlayerIndex() {
-        return this.nowPlayerIndex;
+    private Game restoreGame(List<Player> newPlayers, Grid loadedGrid, int currentPlayerIndex) {
+        //Wrap the loaded state directly; building a fresh map first would only be thrown away
+        Game newGame = new Game(new RulesEngine(newPlayers, loadedGrid));
+
+        newGame.engine.setCurrentPlayerIndex(currentPlayerIndex);
+
+        fixOwners(newGame);
+
+        return newGame;
     }
 
     private void fixOwners(Game game) {
         for (Player player : game.getPlayers()) {
-            player.setOwnedBlocks(new HashSet<>());
+            player.clearTerritory();
             player.setStructures(new ArrayList<>());
             player.setUnits(new ArrayList<>());
+            game.getGrid().registerPlayer(player);
         }
 
-        for (int x = 0; x < game.getGrid().getWidth(); x++) {
-            for (int y = 0; y < game.getGrid().getHeight(); y++) {
-                Blocks block = game.getGrid().getBlock(x, y);
-                Player owner = block.getOwner();
-                if (owner != null) {
-                    owner.addOwnedBlock(block);
-
-                    Structures structure = block.getStructure();
-                    if (structure != null) {
-                        structure.setOwner(owner);
-                        owner.getStructures().add(structure);
-                    }
-
-                    Units unit = block.getUnit();
-                    if (unit != null) {
-                        unit.setOwner(owner);
-                        owner.getUnits().add(unit);
-                    }
+        Grid grid = game.getGrid();
+        int cellCount = grid.getWidth() * grid.getHeight();
+        for (int cell = 0; cell < cellCount; cell++) {
+            Player owner = grid.getOwner(cell);
+            if (owner != null) {
+                owner.addOwnedCell(cell, grid.getTerrainKind(cell));
+
+                Structures structure = grid.getStructure(cell);
+                if (structure != null) {
+                    structure.setOwner(owner);
+                    owner.attachStructure(structure);
                 }
             }
         }
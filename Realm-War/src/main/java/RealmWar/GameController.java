@@ -1,312 +1,205 @@
 package RealmWar;
 
+import AI.MctsAgent;
+import Engine.ActionBuffer;
+import Engine.ActionGenerator;
+import Engine.ActionResult;
+import Engine.Actions;
+import Engine.GameEvent;
+import Engine.RealTimeClock;
+import Engine.RulesEngine;
 import GUI.GameGUI;
 import Grid.*;
 import Structures.Structures;
-import Structures.TownHall;
 import Units.*;
-import Units.*;
-import Blocks.*;
 import javax.swing.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+// Drives the rules engine from the Swing side: runs it on a real-time clock and refreshes the gui
 public class GameController {
-    private ScheduledExecutorService scheduler;
-    private ScheduledFuture<?> turnTimerTask;
-    private int remainingTurnTime = 30;
-    private List<Player> players;
-    private Grid grid;
-    private int currentPlayerIndex = 0;
+    private final RealTimeClock clock = new RealTimeClock(SwingUtilities::invokeLater);
+    private final RulesEngine engine;
     private Scanner scanner;
     private GameGUI gui;
-
-    private ScheduledFuture<?> resourceTimerTask;
-
+    // Event thread only
+    private final ActionGenerator actionGenerator = new ActionGenerator();
+    private final ActionBuffer actionBuffer = new ActionBuffer();
+
+    // Computer players: search runs on one background thread against a fork, moves are
+    // applied here on the event thread like a human's clicks
+    private final Set<Integer> aiPlayerIds = new HashSet<>();
+    private final Random aiRandom = new Random();
+    private MctsAgent aiAgent;
+    private ExecutorService thinker;
+    private boolean aiThinking;
+    private int aiActionsThisTurn;
+
+    public GameController(RulesEngine engine, Scanner scanner) {
+        this.engine = engine;
+        this.scanner = scanner;
+        engine.addListener(event -> {
+            if (event.getType() == GameEvent.Type.TURN_STARTED) {
+                aiActionsThisTurn = 0;
+                maybeRunAi();
+            }
+        });
+    }
 
     public GameController(List<Player> players, Grid grid, Scanner scanner) {
-        this.players = players;
-        this.grid = grid;
-        this.scanner = scanner;
+        this(new RulesEngine(players, grid), scanner);
+    }
+
+    public RulesEngine getEngine() {
+        return engine;
     }
 
     public Player getCurrentPlayer() {
-        return players.get(currentPlayerIndex);
+        return engine.getCurrentPlayer();
     }
 
     public int getCurrentPlayerIndex() {
-        return currentPlayerIndex;
+        return engine.getCurrentPlayerIndex();
     }
 
     public void setCurrentPlayerIndex(int index) {
-        this.currentPlayerIndex = index;
+        engine.setCurrentPlayerIndex(index);
     }
 
+    // Restarting only swaps timer handles on the shared wheel, no threads are created
     public void startTimers() {
-        stopTimers();
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        turnTimerTask = scheduler.scheduleAtFixedRate(() -> {
-            remainingTurnTime--;
-            System.out.println("Remaining Time: " + remainingTurnTime + " seconds");
-
-            if (remainingTurnTime <= 0) {
-                remainingTurnTime = 30;
-                SwingUtilities.invokeLater(() -> {
-                    nextTurn();
-                    Player current = getCurrentPlayer();
-                    current.startTurn();
-                    System.out.println("Turn of Player: " + current.getName());
-
-                    if (gui != null) {
-                        gui.refresh();
-                    }
-                });
-            }
-        }, 1, 1, TimeUnit.SECONDS);
-
-        //Gain resources timer(every 3 seconds)
-        resourceTimerTask = scheduler.scheduleAtFixedRate(() -> {
-            SwingUtilities.invokeLater(() -> {
-                for (Player player : players) {
-                    if (!player.isDefeated()) {
-                        int goldBefore = player.getGold();
-                        int foodBefore = player.getFood();
-                        player.collectResources();
-                        int goldGained = player.getGold() - goldBefore;
-                        int foodGained = player.getFood() - foodBefore;
-
-
-                        System.out.println(player.getName() +
-                                " gained " + goldGained + " gold and " +
-                                foodGained + " food");
-
-                        if (gui != null) {
-                            gui.refresh();
-                            if (goldGained > 0 || foodGained > 0) {
-                                gui.showResourceGain(goldGained, foodGained);
-                            }
-                        }
-                    }
-                }
-            });
-        }, 0, 3, TimeUnit.SECONDS);
+        engine.start(clock);
     }
 
     public void stopTimers() {
-        if (turnTimerTask != null) {
-            turnTimerTask.cancel(true);
-        }
-        if (resourceTimerTask != null) {
-            resourceTimerTask.cancel(true);
-        }
-        if (scheduler != null) {
-            scheduler.shutdownNow();
-            scheduler = null;
-        }
+        engine.stop();
     }
 
     public void resetTurnTimer() {
-        this.remainingTurnTime = 30;
+        engine.resetTurnTime();
         startTimers();
     }
 
-    public void handleAttack(Units attacker, Position targetPos) {
-        if (attacker == null || targetPos == null) {
-            System.out.println("Invalid attacker or target position");
-            return;
+    public ActionResult handleAttack(Units attacker, Position targetPos) {
+        ActionResult result = engine.attack(attacker, targetPos);
+        if (!result.isSuccess()) {
+            System.out.println(result.getMessage());
         }
-
-        if (!grid.isValidPosition(targetPos.getX(), targetPos.getY())) {
-            System.out.println("Invalid target position");
-            return;
+        if (gui != null) {
+            gui.refresh();
         }
+        return result;
+    }
 
-        Units targetUnit = grid.getUnitAt(targetPos);
-        Structures targetStructure = grid.getStructure(targetPos);
-
-        if (targetUnit != null && !targetUnit.getOwner().equals(attacker.getOwner())) {
-            if (!attacker.isInRange(targetPos)) {
-                System.out.println("Target is out of range");
-                return;
-            }
-
-            targetUnit.takeDamage(attacker.getAttackPower());
-            attacker.takeDamage(targetUnit.getAttackPower());
-
-            System.out.println(attacker.getClass().getSimpleName() + " attacked " +
-                    targetUnit.getClass().getSimpleName());
-
-            if (!targetUnit.isAlive()) {
-                grid.removeUnit(targetUnit);
-                targetUnit.getOwner().removeUnit(targetUnit);
-                System.out.println("Target unit destroyed!");
-            }
-
-            if (!attacker.isAlive()) {
-                grid.removeUnit(attacker);
-                attacker.getOwner().removeUnit(attacker);
-                System.out.println("Attacker unit died!");
-            }
-
-        } else if (targetStructure != null && !targetStructure.getOwner().equals(attacker.getOwner())) {
-            if (!attacker.isInRange(targetPos)) {
-                System.out.println("Target is out of range");
-                return;
-            }
-
-            targetStructure.takeDamage(attacker.getAttackPower());
-            System.out.println("Structure attacked!");
-
-            if (!targetStructure.isAlive()) {
-                grid.destroyStructure(targetPos);
-                System.out.println("Structure destroyed!");
-            }
-
-        } else {
-            System.out.println("No valid enemy target at this position");
+    public ActionResult handleStructureAttack(Units attacker, Structures targetStructure) {
+        ActionResult result = engine.attack(attacker, targetStructure);
+        if (!result.isSuccess()) {
+            System.out.println(result.getMessage());
         }
-
         if (gui != null) {
             gui.refresh();
+            gui.updateGameBoard();
         }
+        return result;
     }
 
-    /*public void handleStructureAttack(Units attacker, Structures targetStructure) {
-        if (attacker == null || targetStructure == null) {
-            return;
-        }
-
-        targetStructure.takeDamage(attacker.getAttackPower());
-        attacker.takeDamage(targetStructure.getDurability());
+    public void nextTurn() {
+        engine.nextTurn();
+    }
 
-        System.out.println(attacker.getClass().getSimpleName() + " attacked " + targetStructure.getClass().getSimpleName());
-        System.out.println("Structure HP left: " + targetStructure.getDurability());
-        System.out.println("Attacker HP left: " + attacker.getHitPoints());
+    public void endTurn() {
+        stopTimers();
+        engine.endTurn();
+        startTimers();
+    }
 
-        if (!attacker.isAlive()) {
-            grid.removeUnit(attacker);
-            attacker.getOwner().removeUnit(attacker);
-            System.out.println("Attacker unit destroyed!");
-        }
+    boolean isGameOver() {
+        return engine.isGameOver();
+    }
 
-        if (!targetStructure.isAlive()) {
-            Position structurePos = targetStructure.getOwner().getOwnedBlocks().stream()
-                    .filter(b -> b.getStructure() == targetStructure).findFirst()
-                    .map(b -> b.getPosition()).orElse(null);
-            if (structurePos != null) {
-                grid.destroyStructure(structurePos);
-            }
+    public void setGui(GameGUI gui) {
+        this.gui = gui;
+    }
 
-            targetStructure.getOwner().removeStructure(targetStructure);
+    public int getRemainingTurnTime() {
+        return engine.getRemainingTurnTime();
+    }
 
-            if (targetStructure instanceof TownHall) {
-                targetStructure.getOwner().setDefeated(true);
-                System.out.println("Town Hall destroyed! " + targetStructure.getOwner().getName() + " has been defeated!");
+    // What the current player can do on or from a cell. The buffer is reused by the next call.
+    public ActionBuffer getActionsAt(Position position) {
+        Grid grid = engine.getGrid();
+        actionGenerator.generate(engine, grid.getCellIndex(position.getX(), position.getY()), actionBuffer);
+        return actionBuffer;
+    }
 
-                long alivePlayers = players.stream().filter(p -> !p.isDefeated()).count();
-                if (alivePlayers == 1) {
-                    Player winner = players.stream().filter(p -> !p.isDefeated()).findFirst().get();
-                    JOptionPane.showMessageDialog(null,
-                            "Congratulations, " + winner.getName() + " has won the game!",
-                            "Victory", JOptionPane.INFORMATION_MESSAGE);
-                    System.exit(0);
-                }
-            }
-        }
-    }*/
+    public boolean isLegal(long action) {
+        actionGenerator.generate(engine, actionBuffer);
+        return actionBuffer.contains(action);
+    }
 
-    public void handleStructureAttack(Units attacker, Structures targetStructure) {
-        if (attacker == null || targetStructure == null) {
-            JOptionPane.showMessageDialog(null,
-                    "Invalid attacker or target structure!",
-                    "Attack Error",
-                    JOptionPane.ERROR_MESSAGE);
-            return;
+    public void setAiPlayers(Collection<Integer> playerIds, MctsAgent agent) {
+        aiPlayerIds.clear();
+        aiPlayerIds.addAll(playerIds);
+        aiAgent = agent;
+        if (thinker == null && !aiPlayerIds.isEmpty()) {
+            thinker = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "ai-thinker");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+    }
 
-        targetStructure.takeDamage(attacker.getAttackPower());
-        attacker.takeDamage(targetStructure.getDurability());
-
-        StringBuilder message = new StringBuilder();
-        message.append(attacker.getClass().getSimpleName())
-                .append(" attacked ")
-                .append(targetStructure.getClass().getSimpleName())
-                .append("\n");
-
-        message.append("Structure HP left: ").append(targetStructure.getDurability()).append("\n");
-        message.append("Attacker HP left: ").append(attacker.getHitPoints());
+    public boolean isAiPlayer(Player player) {
+        return aiPlayerIds.contains(player.getId());
+    }
 
-        JOptionPane.showMessageDialog(null, message.toString(), "Attack Result", JOptionPane.INFORMATION_MESSAGE);
+    // Starts thinking about the current player's next action if the computer plays them.
+    // Must be called on the event thread; a search already running is left to finish.
+    public void maybeRunAi() {
+        Player player = engine.getCurrentPlayer();
+        if (aiAgent == null || aiThinking || engine.isGameOver() || !isAiPlayer(player))
+            return;
+        aiThinking = true;
+        RulesEngine snapshot = engine.fork();
+        long hash = engine.getGrid().getStateHash();
+        long budget = Math.min(TimeUnit.MILLISECONDS.toNanos(aiAgent.getThinkMillis()),
+                TimeUnit.SECONDS.toNanos(Math.max(0, engine.getRemainingTurnTime() - 1)));
+        long deadline = System.nanoTime() + budget;
+        long seed = aiRandom.nextLong();
+        thinker.execute(() -> {
+            long action = aiAgent.chooseAction(snapshot, deadline, seed);
+            SwingUtilities.invokeLater(() -> applyAiAction(player, hash, action));
+        });
+    }
 
-        if (!attacker.isAlive()) {
-            grid.removeUnit(attacker);
-            attacker.getOwner().removeUnit(attacker);
-            JOptionPane.showMessageDialog(null,
-                    "Attacker unit destroyed!",
-                    "Unit Death",
-                    JOptionPane.WARNING_MESSAGE);
+    // The game may have moved on while searching (turn timer, a save being loaded): a stale
+    // action is only played if it is still legal, otherwise the search starts over
+    private void applyAiAction(Player player, long hash, long action) {
+        aiThinking = false;
+        if (engine.isGameOver() || engine.getCurrentPlayer() != player) {
+            maybeRunAi();
+            return;
         }
-
-        if (!targetStructure.isAlive()) {
-            Position structurePos = targetStructure.getOwner().getOwnedBlocks().stream()
-                    .filter(b -> b.getStructure() == targetStructure)
-                    .map(b -> b.getPosition())
-                    .findFirst()
-                    .orElse(null);
-
-            if (structurePos != null) {
-                grid.destroyStructure(structurePos);
-            }
-
-            targetStructure.getOwner().removeStructure(targetStructure);
-
-            if (targetStructure instanceof TownHall) {
-                targetStructure.getOwner().setDefeated(true);
-                JOptionPane.showMessageDialog(null,
-                        "Town Hall destroyed!\n" + targetStructure.getOwner().getName() + " has been defeated!",
-                        "Defeat",
-                        JOptionPane.WARNING_MESSAGE);
-
-                long alivePlayers = players.stream().filter(p -> !p.isDefeated()).count();
-                if (alivePlayers == 1) {
-                    Player winner = players.stream().filter(p -> !p.isDefeated()).findFirst().get();
-                    JOptionPane.showMessageDialog(null,
-                            "Congratulations, " + winner.getName() + " has won the game!",
-                            "Victory",
-                            JOptionPane.INFORMATION_MESSAGE);
-                    System.exit(0);
-                }
-            } else {
-                JOptionPane.showMessageDialog(null,
-                        "Structure destroyed!",
-                        "Structure",
-                        JOptionPane.INFORMATION_MESSAGE);
-            }
+        if (hash != engine.getGrid().getStateHash() && !isLegal(action)) {
+            maybeRunAi();
+            return;
         }
-
+        if (Actions.kind(action) == Actions.END_TURN || ++aiActionsThisTurn > MctsAgent.MAX_ACTIONS_PER_TURN) {
+            endTurn();
+            return;
+        }
+        ActionResult result = Actions.apply(engine, action);
         if (gui != null) {
             gui.refresh();
             gui.updateGameBoard();
         }
+        if (result.isSuccess()) {
+            maybeRunAi();
+        } else {
+            endTurn();
+        }
     }
-
-    public void nextTurn() {
-        currentPlayerIndex = (currentPlayerIndex + 1) % players.size();
-        System.out.println("Turn changed to: " + getCurrentPlayer().getName());
-    }
-
-    boolean isGameOver() {
-        return players.stream().filter(p -> !p.isDefeated()).count() <= 1;
-    }
-
-    public void setGui(GameGUI gui) {
-        this.gui = gui;
-    }
-
-    public int getRemainingTurnTime() {
-        return remainingTurnTime;
-    }
-}
\ No newline at end of file
+}
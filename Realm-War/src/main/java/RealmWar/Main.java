@@ -1,8 +1,12 @@
 package RealmWar;
 
+import AI.MctsAgent;
 import GUI.GameGUI;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
 import javax.swing.*;
@@ -11,6 +15,10 @@ import javax.swing.Timer;
 public class Main {
     private static Game currentGame;
     private static GameController currentGameController;
+    // Snapshot and journal of the game being played, for "Recover Last Game"
+    private static final Path AUTOSAVE_SNAPSHOT = Paths.get("saves/autosave.rws");
+    private static final Path AUTOSAVE_JOURNAL = Paths.get("saves/autosave.rwj");
+    private static ActionJournal journal;
 
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
@@ -40,19 +48,24 @@ public class Main {
 
         JButton newGameBtn = new JButton("New Game");
         JButton loadGameBtn = new JButton("Load Game");
+        JButton recoverGameBtn = new JButton("Recover Last Game");
         JButton exitBtn = new JButton("Exit");
 
         // Button styling
         newGameBtn.setBackground(Color.GREEN);
         loadGameBtn.setBackground(Color.BLUE);
+        recoverGameBtn.setBackground(Color.ORANGE);
         exitBtn.setBackground(Color.RED);
 
         newGameBtn.setForeground(Color.WHITE);
         loadGameBtn.setForeground(Color.WHITE);
+        recoverGameBtn.setForeground(Color.WHITE);
         exitBtn.setForeground(Color.WHITE);
 
         newGameBtn.setFont(font.deriveFont(20f));
         loadGameBtn.setFont(font.deriveFont(20f));
+        recoverGameBtn.setFont(font.deriveFont(20f));
+        recoverGameBtn.setEnabled(AUTOSAVE_SNAPSHOT.toFile().exists());
         exitBtn.setFont(font.deriveFont(20f));
 
         newGameBtn.addActionListener(e -> {
@@ -65,12 +78,18 @@ public class Main {
             loadGame();
         });
 
+        recoverGameBtn.addActionListener(e -> {
+            menuFrame.dispose();
+            recoverGame();
+        });
+
         exitBtn.addActionListener(e -> {
             System.exit(0);
         });
 
         panel.add(newGameBtn);
         panel.add(loadGameBtn);
+        panel.add(recoverGameBtn);
         panel.add(exitBtn);
 
         menuFrame.add(panel);
@@ -110,9 +129,23 @@ public class Main {
             players.add(new Player(name.trim(), i));
         }
 
+        // Which players the computer plays
+        List<Integer> aiPlayers = new ArrayList<>();
+        for (Player player : players) {
+            int answer = JOptionPane.showConfirmDialog(null,
+                    "Should the computer play " + player.getName() + "?",
+                    "Computer Players",
+                    JOptionPane.YES_NO_OPTION);
+            if (answer == JOptionPane.YES_OPTION) {
+                aiPlayers.add(player.getId());
+            }
+        }
+
         // Create new game
         currentGame = new Game(players, Config.GRID_WIDTH, Config.GRID_HEIGHT);
-        currentGameController = new GameController(players, currentGame.getGrid(), new Scanner(System.in));
+        currentGameController = new GameController(currentGame.getEngine(), new Scanner(System.in));
+        currentGameController.setAiPlayers(aiPlayers,
+                new MctsAgent(Runtime.getRuntime().availableProcessors(), Config.AI_THINK_MILLIS));
 
         // Show in-game menu options
         showInGameMenu();
@@ -132,8 +165,6 @@ public class Main {
         JMenuItem exitItem = new JMenuItem("Exit");
 
         saveItem.addActionListener(e -> {
-            gui.syncResourcesToPlayers();
-
             JFileChooser fileChooser = new JFileChooser();
             fileChooser.setDialogTitle("Save Game");
 
@@ -148,9 +179,10 @@ public class Main {
 
         mainMenuItem.addActionListener(e -> {
             if (JOptionPane.showConfirmDialog(gui,
-                    "Return to main menu? Progress will not be saved.",
+                    "Return to main menu? The game can be picked up again with Recover Last Game.",
                     "Confirm",
                     JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                stopJournal();
                 gui.dispose();
                 showMainMenu();
             }
@@ -161,6 +193,7 @@ public class Main {
                     "Are you sure you want to exit the game?",
                     "Confirm",
                     JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                stopJournal();
                 System.exit(0);
             }
         });
@@ -174,20 +207,20 @@ public class Main {
         menuBar.add(gameMenu);
         gui.setJMenuBar(menuBar);
 
-        // Start game timer
+        // Journal from the first resource tick on, then start game timer
+        startJournal();
         currentGameController.startTimers();
+        currentGameController.maybeRunAi();
     }
 
     private static void loadGame() {
         try {
             currentGame = new Game(new ArrayList<>(), Config.GRID_WIDTH, Config.GRID_HEIGHT);
-            currentGame = currentGame.loadGame("saves/quicksave.json");
+            // Quick saves used to be JSON
+            String savePath = new File("saves/quicksave.rws").exists() ? "saves/quicksave.rws" : "saves/quicksave.json";
+            currentGame = currentGame.loadGame(savePath);
 
-            currentGameController = new GameController(
-                    currentGame.getPlayers(),
-                    currentGame.getGrid(),
-                    new Scanner(System.in));
-            currentGameController.setCurrentPlayerIndex(currentGame.getCurrentPlayerIndex());
+            currentGameController = new GameController(currentGame.getEngine(), new Scanner(System.in));
 
             JOptionPane.showMessageDialog(null,
                     "Game loaded successfully!",
@@ -203,4 +236,45 @@ public class Main {
             showMainMenu();
         }
     }
-}
\ No newline at end of file
+
+    // The previous game's autosave is replaced as soon as this one starts
+    private static void startJournal() {
+        stopJournal();
+        try {
+            journal = ActionJournal.start(currentGame, AUTOSAVE_SNAPSHOT, AUTOSAVE_JOURNAL);
+        } catch (IOException e) {
+            System.err.println("Autosave disabled: " + e.getMessage());
+        }
+    }
+
+    private static void stopJournal() {
+        if (journal == null)
+            return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Error in closing autosave: " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    private static void recoverGame() {
+        try {
+            currentGame = ActionJournal.recover(AUTOSAVE_SNAPSHOT, AUTOSAVE_JOURNAL);
+            currentGameController = new GameController(currentGame.getEngine(), new Scanner(System.in));
+
+            JOptionPane.showMessageDialog(null,
+                    "Game recovered successfully!",
+                    "Recover Game",
+                    JOptionPane.INFORMATION_MESSAGE);
+
+            showInGameMenu();
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(null,
+                    "Error recovering game: " + ex.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            showMainMenu();
+        }
+    }
+}
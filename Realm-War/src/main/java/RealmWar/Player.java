@@ -1,9 +1,16 @@
 package RealmWar;
 
 import Structures.Structures;
-import Structures.TownHall;
 import Units.Units;
 import Blocks.*;
+import Grid.Position;
+import Grid.StateHash;
+import Grid.Terrain;
+import Grid.Territory;
+import Utils.BinaryIn;
+import Utils.BinaryOut;
+
+import java.io.IOException;
 import java.util.*;
 
 public class Player {
@@ -15,8 +22,23 @@ public class Player {
     private int maxUnitSpace;
     private List<Units> units = new ArrayList<>();
     private List<Structures> structures = new ArrayList<>();
-    private Set<Blocks> ownedBlocks = new HashSet<>();
+    private Territory territory = new Territory();
     private boolean isDefeated = false;
+    // Only in saves from before owners moved onto the grid: the blocks this player owned.
+    // Game takes them once on load, so they are never written back.
+    private List<OwnedBlock> ownedBlocks;
+
+    // Running totals, kept up to date as territory and structures change so the
+    // resource ticks don't have to walk every owned block and structure
+    private transient int territoryGold;
+    private transient int territoryFood;
+    private transient int structureGold;
+    private transient int structureFood;
+    private transient int structureUnitSpace;
+    private transient int structureExtraUnitSpace;
+    private transient int townHalls;
+    // Set by the grid this player is registered with
+    private transient StateHash stateHash;
 
 
     public Player(String name, int id) {
@@ -28,15 +50,98 @@ public class Player {
         this.maxUnitSpace = 0;
         this.units = new ArrayList<>();
         this.structures = new ArrayList<>();
-        this.ownedBlocks = new HashSet<>();
+        this.territory = new Territory();
     }
 
-    public void setOwnedBlocks(Set<Blocks> ownedBlocks) {
-        this.ownedBlocks = ownedBlocks != null ? ownedBlocks : new HashSet<>();
+    // Resources, territory and flags; units and structures are filled in by the caller
+    public Player copy() {
+        Player copy = new Player(name, id);
+        copy.gold = gold;
+        copy.food = food;
+        copy.unitSpace = unitSpace;
+        copy.maxUnitSpace = maxUnitSpace;
+        copy.territory = new Territory(getTerritory());
+        copy.isDefeated = isDefeated;
+        copy.territoryGold = territoryGold;
+        copy.territoryFood = territoryFood;
+        return copy;
+    }
+
+    // Binary save record: id, gold, food, unit space, max unit space (ints), flags byte
+    // (1 defeated; 2 is no longer used and ignored), then the name. Territory, units and structures
+    // come back from the grid.
+    void writeRecord(BinaryOut out) throws IOException {
+        out.writeInt(id);
+        out.writeInt(gold);
+        out.writeInt(food);
+        out.writeInt(unitSpace);
+        out.writeInt(maxUnitSpace);
+        out.writeByte(isDefeated ? 1 : 0);
+        out.writeString(name);
+    }
+
+    static Player readRecord(BinaryIn in) throws IOException {
+        int id = in.readInt();
+        int gold = in.readInt();
+        int food = in.readInt();
+        int unitSpace = in.readInt();
+        int maxUnitSpace = in.readInt();
+        int flags = in.readByte();
+        Player player = new Player(in.readString(), id);
+        player.gold = gold;
+        player.food = food;
+        player.unitSpace = unitSpace;
+        player.maxUnitSpace = maxUnitSpace;
+        player.isDefeated = (flags & 1) != 0;
+        return player;
+    }
+
+    public StateHash getStateHash() {
+        return stateHash;
+    }
+
+    public void setStateHash(StateHash stateHash) {
+        this.stateHash = stateHash;
+    }
+
+    // Called before and after every change to gold or food
+    private void toggleHash() {
+        if (stateHash != null)
+            stateHash.togglePlayer(id, gold, food);
+    }
+
+    // Positions of the blocks an old save listed for this player, or none
+    List<Position> takeLegacyOwnedBlocks() {
+        List<Position> positions = new ArrayList<>();
+        if (ownedBlocks != null) {
+            for (OwnedBlock block : ownedBlocks) {
+                positions.add(block.position);
+            }
+            ownedBlocks = null;
+        }
+        return positions;
+    }
+
+    private static final class OwnedBlock {
+        private Position position;
+    }
+
+    public void clearTerritory() {
+        getTerritory().clear();
+        territoryGold = 0;
+        territoryFood = 0;
     }
 
     public void setStructures(List<Structures> structures) {
         this.structures = structures;
+        structureGold = 0;
+        structureFood = 0;
+        structureUnitSpace = 0;
+        structureExtraUnitSpace = 0;
+        townHalls = 0;
+        for (Structures structure : structures) {
+            accountStructure(structure, 1);
+        }
     }
 
     public void setUnits(List<Units> units) {
@@ -56,7 +161,9 @@ public class Player {
     }
 
     public void setGold(int gold) {
+        toggleHash();
         this.gold = gold;
+        toggleHash();
     }
 
     public int getFood() {
@@ -64,7 +171,9 @@ public class Player {
     }
 
     public void setFood(int food) {
+        toggleHash();
         this.food = food;
+        toggleHash();
     }
 
     public List<Units> getUnits() {
@@ -78,9 +187,10 @@ public class Player {
         return structures;
     }
 
-    public Set<Blocks> getOwnedBlocks() {
-        if (ownedBlocks == null) ownedBlocks = new HashSet<>();
-        return ownedBlocks;
+    // Owned cells, as grid cell indexes
+    public Territory getTerritory() {
+        if (territory == null) territory = new Territory();
+        return territory;
     }
 
     public void startTurn() {
@@ -88,24 +198,18 @@ public class Player {
         generateResources();
         payMaintenance();
         updateUnitSpace();
-        checkDefeat();
     }
 
     public void generateResources() {
-        for (Blocks block : ownedBlocks) {
-            if (block instanceof EmptyBlock)
-                gold += 1;
-            else if (block instanceof ForestBlock)
-                food += 1;
-        }
-        for (Structures structure : structures) {
-            gold += structure.getGoldPerTurn();
-            food += structure.getFoodPerTurn();
-            maxUnitSpace += structure.getUnitSpace();
-        }
+        toggleHash();
+        gold += territoryGold + structureGold;
+        food += territoryFood + structureFood;
+        maxUnitSpace += structureUnitSpace;
+        toggleHash();
     }
 
     public void payMaintenance() {
+        toggleHash();
         for (Structures structure : structures) {
             gold -= structure.getMaintenanceCost();
         }
@@ -117,6 +221,7 @@ public class Player {
             gold = 0;
         if (food < 0)
             food = 0;
+        toggleHash();
     }
 
     private void updateUnitSpace() {
@@ -128,65 +233,137 @@ public class Player {
     }
 
     public void addStructure(Structures structure) {
+        toggleHash();
         if (canBuildStructure(structure)) {
             structures.add(structure);
+            accountStructure(structure, 1);
             gold -= structure.getBuildingCost();
         }
+        toggleHash();
+    }
+
+    // Adds an already built structure (e.g. when loading a save) without charging for it
+    public void attachStructure(Structures structure) {
+        structures.add(structure);
+        accountStructure(structure, 1);
     }
 
     public void addOwnedBlock(Blocks block) {
-        getOwnedBlocks().add(block);
+        addOwnedCell(block.getCellIndex(), block.getTerrainKind());
+    }
+
+    // Same as addOwnedBlock, for callers walking the grid by cell index
+    public void addOwnedCell(int cell, int terrainKind) {
+        if (getTerritory().add(cell)) {
+            accountTerrain(terrainKind, 1);
+        }
+    }
+
+    public void removeOwnedBlock(Blocks block) {
+        if (getTerritory().remove(block.getCellIndex())) {
+            accountBlock(block, -1);
+        }
     }
 
     public void removeStructure(Structures structure) {
-        structures.remove(structure);
-        if (structure instanceof TownHall)
+        if (structures.remove(structure)) {
+            accountStructure(structure, -1);
+        }
+        if (structure.getTypeId() == Structures.TOWN_HALL)
             checkDefeat();
     }
 
+    // Called by the grid when a forest on one of our blocks is cut down
+    public void onForestDestroyed(Blocks block) {
+        if (getTerritory().contains(block.getCellIndex())) {
+            accountTerrain(Terrain.FOREST, -1);
+            accountTerrain(Terrain.CLEARED_FOREST, 1);
+        }
+    }
+
+    // Structures call these around a level change, since their yields depend on the level
+    public void beforeStructureChange(Structures structure) {
+        if (structures.contains(structure)) {
+            accountStructure(structure, -1);
+        }
+    }
+
+    public void afterStructureChange(Structures structure) {
+        if (structures.contains(structure)) {
+            accountStructure(structure, 1);
+        }
+    }
+
+    private void accountBlock(Blocks block, int sign) {
+        accountTerrain(block.getTerrainKind(), sign);
+    }
+
+    private void accountTerrain(int kind, int sign) {
+        territoryGold += sign * Terrain.goldYield(kind);
+        territoryFood += sign * Terrain.foodYield(kind);
+    }
+
+    private void accountStructure(Structures structure, int sign) {
+        structureGold += sign * structure.getGoldPerTurn();
+        structureFood += sign * structure.getFoodPerTurn();
+        structureUnitSpace += sign * structure.getUnitSpace();
+        structureExtraUnitSpace += sign * structure.getExtraUnitSpacePerTurn();
+        if (structure.getTypeId() == Structures.TOWN_HALL)
+            townHalls += sign;
+    }
+
+    public boolean canAddUnit(Units unit) {
+        return canAddUnit(unit.getPayment(), unit.getRation(), unit.getUnitSpace());
+    }
+
+    public boolean canAddUnit(int payment, int ration, int space) {
+        return gold >= payment && food >= ration && unitSpace + space <= maxUnitSpace;
+    }
+
     public boolean addUnit(Units unit) {
-        if (gold >= unit.getPayment() && food >= unit.getRation()
-                && unitSpace + unit.getUNITSpace() <= maxUnitSpace) {
+        if (canAddUnit(unit)) {
             units.add(unit);
+            toggleHash();
             gold -= unit.getPayment();
             food -= unit.getRation();
-            unitSpace += unit.getUNITSpace();
+            toggleHash();
+            unitSpace += unit.getUnitSpace();
             return true;
         }
         return false;
     }
 
+    // Adds a unit that has already been paid for, e.g. one merged from two of ours
+    public void attachUnit(Units unit) {
+        units.add(unit);
+    }
+
     public void removeUnit(Units unit) {
         units.remove(unit);
     }
 
     public void collectResources() {
-        for (Blocks block : ownedBlocks) {
-            if (block instanceof EmptyBlock)
-                gold += 1;
-            else if (block instanceof ForestBlock)
-                food += 1;
-        }
-        for (Structures structure : structures) {
-            gold += structure.getGoldPerTurn();
-            food += structure.getFoodPerTurn();
-            maxUnitSpace += structure.getExtraUnitSpacePerTurn();
-        }
+        toggleHash();
+        gold += territoryGold + structureGold;
+        food += territoryFood + structureFood;
+        maxUnitSpace += structureExtraUnitSpace;
         if (gold < 0) gold = 0;
         if (food < 0) food = 0;
 
+        toggleHash();
     }
 
     public void spendResources(int goldCost, int foodCost) {
+        toggleHash();
         if (canAfford(goldCost, foodCost)) {
             gold -= goldCost;
             food -= foodCost;
         }
+        toggleHash();
     }
 
     public void checkDefeat() {
-        boolean hasTownHall = structures.stream().anyMatch(structure -> structure instanceof TownHall);
-        isDefeated = !hasTownHall;
+        isDefeated = townHalls == 0;
     }
 
     public boolean isDefeated() {
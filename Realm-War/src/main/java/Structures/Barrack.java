@@ -9,6 +9,11 @@ public class Barrack extends Structures {
         this.owner = player;
     }
 
+    @Override
+    public int getTypeId() {
+        return BARRACK;
+    }
+
     @Override
     public int getGoldPerTurn() {
         return 0;
@@ -9,6 +9,11 @@ public class Farm extends Structures {
         this.owner = player;
     }
 
+    @Override
+    public int getTypeId() {
+        return FARM;
+    }
+
     @Override
     public int getGoldPerTurn() {
         return 0;
@@ -9,6 +9,11 @@ public class Market extends Structures {
         this.owner = player;
     }
 
+    @Override
+    public int getTypeId() {
+        return MARKET;
+    }
+
     @Override
     public int getGoldPerTurn() {
         return 5 * currentLevel;
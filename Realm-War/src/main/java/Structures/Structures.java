@@ -1,14 +1,28 @@
 package Structures;
 
+import Grid.StateHash;
+import Grid.StructureRegistry;
 import RealmWar.Player;
 
-public abstract class Structures {
+public abstract class Structures implements Cloneable {
+
+    // Type ids, see getTypeId
+    public static final int TOWN_HALL = 0;
+    public static final int BARRACK = 1;
+    public static final int FARM = 2;
+    public static final int MARKET = 3;
+    public static final int TOWER = 4;
+    public static final int TYPES = 5;
 
     protected int durability;
     protected int maintenanceCost;
     protected int maxLevel;
     protected int currentLevel;
     protected transient Player owner;
+    // Set by the grid while this structure stands on it
+    private transient StateHash stateHash;
+    private transient StructureRegistry registry;
+    private transient int cell = -1;
 
     public Structures(int durability, int maintenanceCost, int maxLevel) {
         this.durability = durability;
@@ -17,6 +31,58 @@ public abstract class Structures {
         this.currentLevel = 1;
     }
 
+    // A new level 1 structure of one of the type ids
+    public static Structures create(int type, Player owner) {
+        switch (type) {
+            case TOWN_HALL: return new TownHall(owner);
+            case BARRACK: return new Barrack(owner);
+            case FARM: return new Farm(owner);
+            case MARKET: return new Market(owner);
+            case TOWER: return new Tower(owner);
+            default: throw new IllegalArgumentException("Unknown structure type: " + type);
+        }
+    }
+
+    // Same level and durability; the caller sets the owner
+    public Structures copy() {
+        try {
+            Structures copy = (Structures) clone();
+            copy.stateHash = null;
+            copy.registry = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public StateHash getStateHash() {
+        return stateHash;
+    }
+
+    // Cell index on the grid, or -1 when not placed
+    public int getCell() {
+        return cell;
+    }
+
+    // Called by the grid on placement and removal (null, null, -1)
+    public void setPlacement(StateHash stateHash, StructureRegistry registry, int cell) {
+        this.stateHash = stateHash;
+        this.registry = registry;
+        this.cell = cell;
+    }
+
+    // Called before and after each change that the state hash covers
+    private void toggleHash() {
+        if (stateHash != null)
+            stateHash.toggleStructure(this, cell);
+    }
+
+    // For loaders: level and durability of a structure that has not been placed yet
+    public void restore(int currentLevel, int durability) {
+        this.currentLevel = currentLevel;
+        this.durability = durability;
+    }
+
     public int getCurrentLevel() {
         return currentLevel;
     }
@@ -30,7 +96,12 @@ public abstract class Structures {
     }
 
     public void setOwner(Player owner) {
+        toggleHash();
+        Player oldOwner = this.owner;
         this.owner = owner;
+        if (registry != null && oldOwner != owner)
+            registry.ownerChanged(this, oldOwner);
+        toggleHash();
     }
 
     public boolean isAlive() {
@@ -38,12 +109,17 @@ public abstract class Structures {
     }
 
     public void takeDamage(int damage) {
+        toggleHash();
         this.durability -= damage;
         if (this.durability < 0) {
             this.durability = 0;
         }
+        toggleHash();
     }
 
+    // One of TOWN_HALL .. TOWER
+    public abstract int getTypeId();
+
     public abstract int getGoldPerTurn();
 
     public abstract int getFoodPerTurn();
@@ -66,7 +142,13 @@ public abstract class Structures {
 
     public void levelUp() {
         if (currentLevel < maxLevel) {
+            if (owner != null)
+                owner.beforeStructureChange(this);
+            toggleHash();
             currentLevel++;
+            toggleHash();
+            if (owner != null)
+                owner.afterStructureChange(this);
         } else {
             throw new IllegalStateException("Structure is already at max level");
         }
@@ -9,6 +9,11 @@ public class Tower extends Structures {
         this.owner = player;
     }
 
+    @Override
+    public int getTypeId() {
+        return TOWER;
+    }
+
     @Override
     public int getGoldPerTurn() {
         return 0;
@@ -10,6 +10,11 @@ public class TownHall extends Structures {
         this.owner = player;
     }
 
+    @Override
+    public int getTypeId() {
+        return TOWN_HALL;
+    }
+
     @Override
     public int getGoldPerTurn() {
         return 5;
@@ -0,0 +1,109 @@
+package Units;
+
+import Grid.Position;
+import RealmWar.Player;
+
+import java.util.function.BiFunction;
+
+// Stats shared by every unit of a kind. There is one immutable instance per kind, indexed by
+// a small id, and units point at theirs instead of carrying their own copy of these numbers.
+public final class UnitType {
+
+    public static final UnitType PEASANT = new UnitType(0, "Peasant", 15, 5, 2, 1, 1, 1, 1, Peasant::new);
+    public static final UnitType SPEAR_MAN = new UnitType(1, "SpearMan", 20, 6, 2, 1, 2, 1, 1, SpearMan::new);
+    public static final UnitType SWORD_MAN = new UnitType(2, "SwordMan", 25, 7, 2, 2, 3, 2, 2, SwordMan::new);
+    public static final UnitType KNIGHT = new UnitType(3, "Knight", 35, 10, 3, 3, 5, 3, 3, Knight::new);
+
+    private static final UnitType[] BY_ID = {PEASANT, SPEAR_MAN, SWORD_MAN, KNIGHT};
+
+    private final int id;
+    private final String name;
+    // Starting values; hit points and attack power then change per unit
+    private final int hitPoints;
+    private final int attackPower;
+    private final int movementRange;
+    private final int attackRange;
+    private final int payment;
+    private final int ration;
+    private final int unitSpace;
+    private final BiFunction<Player, Position, Units> factory;
+
+    private UnitType(int id, String name, int hitPoints, int attackPower, int movementRange, int attackRange,
+                     int payment, int ration, int unitSpace, BiFunction<Player, Position, Units> factory) {
+        this.id = id;
+        this.name = name;
+        this.hitPoints = hitPoints;
+        this.attackPower = attackPower;
+        this.movementRange = movementRange;
+        this.attackRange = attackRange;
+        this.payment = payment;
+        this.ration = ration;
+        this.unitSpace = unitSpace;
+        this.factory = factory;
+    }
+
+    public static UnitType byId(int id) {
+        if (id < 0 || id >= BY_ID.length)
+            throw new IllegalArgumentException("Unknown unit type: " + id);
+        return BY_ID[id];
+    }
+
+    public static int count() {
+        return BY_ID.length;
+    }
+
+    // For units made without a constructor call, e.g. by Gson when loading a save
+    static UnitType of(Class<? extends Units> unitClass) {
+        for (UnitType type : BY_ID) {
+            if (type.name.equals(unitClass.getSimpleName()))
+                return type;
+        }
+        throw new IllegalArgumentException("Unknown unit class: " + unitClass.getName());
+    }
+
+    // A new level 1 unit of this type
+    public Units create(Player owner, Position position) {
+        return factory.apply(owner, position);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getHitPoints() {
+        return hitPoints;
+    }
+
+    public int getAttackPower() {
+        return attackPower;
+    }
+
+    public int getMovementRange() {
+        return movementRange;
+    }
+
+    public int getAttackRange() {
+        return attackRange;
+    }
+
+    public int getPayment() {
+        return payment;
+    }
+
+    public int getRation() {
+        return ration;
+    }
+
+    public int getUnitSpace() {
+        return unitSpace;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
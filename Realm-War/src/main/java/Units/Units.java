@@ -1,31 +1,69 @@
 package Units;
 
 import Grid.Position;
+import Grid.StateHash;
 import RealmWar.Player;
 
-public abstract class Units {
+public abstract class Units implements Cloneable {
 
+    // Only per-unit state lives here; stats shared by the kind are in UnitType
     protected int hitPoints;
     protected int attackPower;
-    protected int attackRange;
-    protected int movementRange;
-    protected int payment;
-    protected int ration;
-    protected int unitSpace;
     protected int level;
+    // owner is the live link, ownerId what saves keep
     protected transient Player owner;
     protected int ownerId;
     protected Position position;
+    private transient UnitType type;
+    // Set by the grid while this unit stands on it
+    private transient StateHash stateHash;
 
-    public Units(Player owner, Position position) {
+    protected Units(UnitType type, Player owner, Position position) {
+        this.type = type;
         this.owner = owner;
         this.ownerId = owner.getId();
         this.position = position;
+        this.hitPoints = type.getHitPoints();
+        this.attackPower = type.getAttackPower();
         this.level = 1;
     }
 
+    public final UnitType getType() {
+        UnitType t = type;
+        if (t == null)
+            type = t = UnitType.of(getClass());
+        return t;
+    }
+
+    // Same stats and position; the caller sets the owner
+    public Units copy() {
+        try {
+            Units copy = (Units) clone();
+            copy.stateHash = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public StateHash getStateHash() {
+        return stateHash;
+    }
+
+    public void setStateHash(StateHash stateHash) {
+        this.stateHash = stateHash;
+    }
+
+    // Called before and after each change that the state hash covers
+    private void toggleHash() {
+        if (stateHash != null)
+            stateHash.toggleUnit(this);
+    }
+
     public void setHitPoints(int hitPoints) {
+        toggleHash();
         this.hitPoints = hitPoints;
+        toggleHash();
     }
 
     public void setAttackPower(int attackPower) {
@@ -33,7 +71,9 @@ public abstract class Units {
     }
 
     public void setLevel(int level) {
+        toggleHash();
         this.level = level;
+        toggleHash();
     }
 
     public Position getPosition() {
@@ -41,7 +81,9 @@ public abstract class Units {
     }
 
     public void setPosition(Position position) {
+        toggleHash();
         this.position = position;
+        toggleHash();
     }
 
     public int getHitPoints() {
@@ -60,16 +102,24 @@ public abstract class Units {
         return attackPower;
     }
 
+    public int getMovementRange() {
+        return getType().getMovementRange();
+    }
+
+    public int getAttackRange() {
+        return getType().getAttackRange();
+    }
+
     public int getPayment() {
-        return payment;
+        return getType().getPayment();
     }
 
     public int getRation() {
-        return ration;
+        return getType().getRation();
     }
 
-    public int getUNITSpace() {
-        return unitSpace;
+    public int getUnitSpace() {
+        return getType().getUnitSpace();
     }
 
     public int getLevel() {
@@ -82,9 +132,11 @@ public abstract class Units {
 
     // Unit takes damage
     public void takeDamage(int damage) {
+        toggleHash();
         this.hitPoints -= damage;
         if (this.hitPoints < 0)
             this.hitPoints = 0;
+        toggleHash();
     }
 
     // Check if unit is alive
@@ -95,8 +147,6 @@ public abstract class Units {
     public boolean isInRange(Position targetPos) {
         int dx = Math.abs(this.position.getX() - targetPos.getX());
         int dy = Math.abs(this.position.getY() - targetPos.getY());
-        return dx + dy <= this.attackRange;
+        return dx + dy <= getAttackRange();
     }
-
-    public abstract int getUnitSpace();
 }
@@ -0,0 +1,31 @@
+package Utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Direct buffers for file I/O, handed back after use so saves and loads don't each
+// allocate (and leave behind) a fresh 64 KB of native memory
+public final class BufferPool {
+
+    public static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_POOLED = 4;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> FREE = new ConcurrentLinkedQueue<>();
+
+    private BufferPool() {
+    }
+
+    public static ByteBuffer acquire() {
+        ByteBuffer buffer = FREE.poll();
+        if (buffer == null)
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.clear();
+        return buffer;
+    }
+
+    public static void release(ByteBuffer buffer) {
+        // Size checks are racy but only decide whether a spare buffer is kept
+        if (FREE.size() < MAX_POOLED)
+            FREE.offer(buffer);
+    }
+}
@@ -0,0 +1,38 @@
+package Utils;
+
+import java.util.function.Supplier;
+
+// Rule chatter ("Forest destroyed at ...") goes through here so that search and batch
+// threads can silence it for themselves without touching the GUI's console output
+public final class GameLog {
+
+    private static final ThreadLocal<Boolean> QUIET = ThreadLocal.withInitial(() -> false);
+
+    private GameLog() {
+    }
+
+    public static void println(String message) {
+        if (!QUIET.get()) {
+            System.out.println(message);
+        }
+    }
+
+    public static boolean isQuiet() {
+        return QUIET.get();
+    }
+
+    public static void setQuiet(boolean quiet) {
+        QUIET.set(quiet);
+    }
+
+    // Runs task with this thread's rule log muted
+    public static <T> T quietly(Supplier<T> task) {
+        boolean was = QUIET.get();
+        QUIET.set(true);
+        try {
+            return task.get();
+        } finally {
+            QUIET.set(was);
+        }
+    }
+}
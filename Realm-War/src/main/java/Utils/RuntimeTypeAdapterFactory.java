@@ -4,9 +4,12 @@ import com.google.gson.*;
 import com.google.gson.internal.Streams;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -70,24 +73,48 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
         }
 
         return new TypeAdapter<R>() {
+            // Streamed when the type field comes first, as this factory writes it: the
+            // delegate then reads the rest of the object directly. Otherwise the object is
+            // buffered as a tree until the type field turns up.
             @Override
             public R read(JsonReader in) throws IOException {
-                JsonElement jsonElement = Streams.parse(in);
-                JsonElement labelJsonElement = jsonElement.getAsJsonObject().remove(typeFieldName);
+                in.beginObject();
+                if (!maintainType && in.hasNext()) {
+                    String firstName = in.nextName();
+                    if (firstName.equals(typeFieldName) && in.peek() == JsonToken.STRING) {
+                        return delegateFor(in.nextString()).read(new ObjectRestReader(in));
+                    }
+                    return readBuffered(in, firstName);
+                }
+                return readBuffered(in, null);
+            }
 
+            private R readBuffered(JsonReader in, String firstName) throws IOException {
+                JsonObject jsonObject = new JsonObject();
+                if (firstName != null)
+                    jsonObject.add(firstName, Streams.parse(in));
+                while (in.hasNext()) {
+                    jsonObject.add(in.nextName(), Streams.parse(in));
+                }
+                in.endObject();
+
+                JsonElement labelJsonElement = maintainType
+                        ? jsonObject.get(typeFieldName) : jsonObject.remove(typeFieldName);
                 if (labelJsonElement == null) {
                     throw new JsonParseException("Cannot deserialize " + baseType
                             + " because it does not define a field named " + typeFieldName);
                 }
+                return delegateFor(labelJsonElement.getAsString()).fromJsonTree(jsonObject);
+            }
 
-                String label = labelJsonElement.getAsString();
+            private TypeAdapter<R> delegateFor(String label) {
                 @SuppressWarnings("unchecked")
                 TypeAdapter<R> delegate = (TypeAdapter<R>) labelToDelegate.get(label);
                 if (delegate == null) {
                     throw new JsonParseException("Cannot deserialize " + baseType + " subtype named "
                             + label + "; did you forget to register a subtype?");
                 }
-                return delegate.fromJsonTree(jsonElement);
+                return delegate;
             }
 
             @Override
@@ -100,20 +127,239 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
                     throw new JsonParseException("Cannot serialize " + srcType.getName()
                             + "; did you forget to register a subtype?");
                 }
-                JsonObject jsonObject = delegate.toJsonTree(value).getAsJsonObject();
-
-                if (!maintainType) {
-                    JsonObject clone = new JsonObject();
-                    clone.add(typeFieldName, new JsonPrimitive(label));
-                    for (Map.Entry<String, JsonElement> e : jsonObject.entrySet()) {
-                        clone.add(e.getKey(), e.getValue());
-                    }
-                    Streams.write(clone, out);
-                } else {
-                    jsonObject.add(typeFieldName, new JsonPrimitive(label));
-                    Streams.write(jsonObject, out);
+                // Streamed: the label first, then the subtype's own fields in the same object
+                if (maintainType) {
+                    // The subtype writes its own type field
+                    delegate.write(out, value);
+                    return;
                 }
+                out.beginObject();
+                out.name(typeFieldName).value(label);
+                delegate.write(new InlineObjectWriter(out), value);
+                out.endObject();
             }
         }.nullSafe();
     }
+
+    // Hands a delegate the rest of an object whose beginObject (and type field) the caller has
+    // already read, by replaying that beginObject and then reading straight from in
+    private static final class ObjectRestReader extends JsonReader {
+        private final JsonReader in;
+        private boolean beginPending = true;
+
+        ObjectRestReader(JsonReader in) {
+            super(Reader.nullReader());
+            this.in = in;
+            setStrictness(in.getStrictness());
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            if (beginPending) {
+                beginPending = false;
+                return;
+            }
+            in.beginObject();
+        }
+
+        @Override
+        public JsonToken peek() throws IOException {
+            return beginPending ? JsonToken.BEGIN_OBJECT : in.peek();
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            if (beginPending) {
+                // Skipping the whole object: the rest of it, up to and including its end
+                beginPending = false;
+                while (in.hasNext()) {
+                    in.skipValue();
+                }
+                in.endObject();
+                return;
+            }
+            in.skipValue();
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            in.endObject();
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            in.beginArray();
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            in.endArray();
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return !beginPending && in.hasNext();
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            return in.nextName();
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            return in.nextString();
+        }
+
+        @Override
+        public boolean nextBoolean() throws IOException {
+            return in.nextBoolean();
+        }
+
+        @Override
+        public void nextNull() throws IOException {
+            in.nextNull();
+        }
+
+        @Override
+        public double nextDouble() throws IOException {
+            return in.nextDouble();
+        }
+
+        @Override
+        public long nextLong() throws IOException {
+            return in.nextLong();
+        }
+
+        @Override
+        public int nextInt() throws IOException {
+            return in.nextInt();
+        }
+
+        @Override
+        public String getPath() {
+            return in.getPath();
+        }
+
+        @Override
+        public String getPreviousPath() {
+            return in.getPreviousPath();
+        }
+
+        @Override
+        public void close() {
+            // The caller owns in
+        }
+    }
+
+    // Passes a delegate's output straight through to an object the caller has already opened,
+    // dropping only the delegate's own outermost beginObject/endObject
+    private static final class InlineObjectWriter extends JsonWriter {
+        private final JsonWriter out;
+        private int depth;
+
+        InlineObjectWriter(JsonWriter out) {
+            super(Writer.nullWriter());
+            this.out = out;
+            setStrictness(out.getStrictness());
+            setHtmlSafe(out.isHtmlSafe());
+            setSerializeNulls(out.getSerializeNulls());
+        }
+
+        @Override
+        public JsonWriter beginObject() throws IOException {
+            if (depth++ > 0)
+                out.beginObject();
+            return this;
+        }
+
+        @Override
+        public JsonWriter endObject() throws IOException {
+            if (--depth > 0)
+                out.endObject();
+            return this;
+        }
+
+        @Override
+        public JsonWriter beginArray() throws IOException {
+            out.beginArray();
+            return this;
+        }
+
+        @Override
+        public JsonWriter endArray() throws IOException {
+            out.endArray();
+            return this;
+        }
+
+        @Override
+        public JsonWriter name(String name) throws IOException {
+            out.name(name);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(String value) throws IOException {
+            out.value(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) throws IOException {
+            out.jsonValue(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter nullValue() throws IOException {
+            out.nullValue();
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(boolean value) throws IOException {
+            out.value(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Boolean value) throws IOException {
+            out.value(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(float value) throws IOException {
+            out.value(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(double value) throws IOException {
+            out.value(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(long value) throws IOException {
+            out.value(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Number value) throws IOException {
+            out.value(value);
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            // The caller owns out
+        }
+    }
 }
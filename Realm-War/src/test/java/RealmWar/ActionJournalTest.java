@@ -0,0 +1,134 @@
+package RealmWar;
+
+import AI.ScriptedAgent;
+import Engine.RulesEngine;
+import Utils.GameLog;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Journals scripted games and checks that recovery gives back the last committed state:
+// after a crash mid-turn, after a clean close, with a torn final frame, around a manual
+// save, and across many seeds and player counts. Run with the game classes and Gson on
+// the class path; exits with status 1 on the first failed check.
+public class ActionJournalTest {
+
+    public static void main(String[] args) throws Exception {
+        GameLog.setQuiet(true);
+        Path dir = Files.createTempDirectory("realmwar-journal");
+        crashAndTornFrame(dir);
+        saveMidGame(dir);
+        manySeeds(dir);
+        System.out.println("ActionJournalTest passed");
+    }
+
+    private static void crashAndTornFrame(Path dir) throws Exception {
+        Path snapshot = dir.resolve("auto.rws");
+        Path journalPath = dir.resolve("auto.rwj");
+        List<Player> players = new ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            players.add(new Player("P" + id, id));
+        }
+        Game game = new Game(players, 40, 40, 7);
+        RulesEngine engine = game.getEngine();
+        ScriptedAgent agent = new ScriptedAgent();
+        Random random = new Random(3);
+        ActionJournal journal = ActionJournal.start(game, snapshot, journalPath);
+
+        // Runs past a snapshot, so the journal follows a later one than the first
+        long committed = 0;
+        for (int turn = 0; turn < 23; turn++) {
+            agent.playTurn(engine, random);
+            engine.collectResources();
+            engine.endTurn();
+            committed = engine.getGrid().getStateHash();
+        }
+        // Actions of a turn that has not ended are not committed yet
+        agent.playTurn(engine, random);
+        check(engine.getGrid().getStateHash() != committed, "the unfinished turn changed the game");
+        Game recovered = ActionJournal.recover(snapshot, journalPath);
+        check(recovered.getGrid().getStateHash() == committed, "a crash recovers the last committed turn");
+
+        journal.close();
+        recovered = ActionJournal.recover(snapshot, journalPath);
+        check(recovered.getGrid().getStateHash() == engine.getGrid().getStateHash(),
+                "closing commits the rest of the turn");
+        check(recovered.getEngine().getCurrentPlayerIndex() == engine.getCurrentPlayerIndex(),
+                "recovery keeps the current player");
+
+        // Cut into the last frame, as a crash during its write would
+        byte[] bytes = Files.readAllBytes(journalPath);
+        Files.write(journalPath, Arrays.copyOf(bytes, bytes.length - 3));
+        recovered = ActionJournal.recover(snapshot, journalPath);
+        check(recovered.getGrid().getStateHash() == committed, "a torn final frame is dropped");
+    }
+
+    // A manual save must not change the game behind the journal's back
+    private static void saveMidGame(Path dir) throws Exception {
+        Path snapshot = dir.resolve("saved.rws");
+        Path journalPath = dir.resolve("saved.rwj");
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("P1", 1));
+        players.add(new Player("P2", 2));
+        Game game = new Game(players, 30, 30, 11);
+        RulesEngine engine = game.getEngine();
+        ScriptedAgent agent = new ScriptedAgent();
+        Random random = new Random(11);
+        ActionJournal journal = ActionJournal.start(game, snapshot, journalPath);
+        for (int turn = 0; turn < 12; turn++) {
+            agent.playTurn(engine, random);
+            engine.collectResources();
+            engine.endTurn();
+            if (turn == 5) {
+                game.saveGame(dir.resolve("manual.rws").toString());
+                game.saveGame(dir.resolve("manual.json").toString());
+            }
+        }
+        journal.close();
+
+        Game recovered = ActionJournal.recover(snapshot, journalPath);
+        check(recovered.getGrid().getStateHash() == engine.getGrid().getStateHash(),
+                "a manual save mid-game does not break recovery");
+    }
+
+    private static void manySeeds(Path dir) throws Exception {
+        Path snapshot = dir.resolve("seed.rws");
+        Path journalPath = dir.resolve("seed.rwj");
+        for (int seed = 1; seed <= 30; seed++) {
+            List<Player> players = new ArrayList<>();
+            for (int id = 1; id <= 2 + seed % 3; id++) {
+                players.add(new Player("P" + id, id));
+            }
+            Game game = new Game(players, 20 + seed, 20 + seed, seed);
+            RulesEngine engine = game.getEngine();
+            ScriptedAgent agent = new ScriptedAgent();
+            Random random = new Random(seed);
+            ActionJournal journal = ActionJournal.start(game, snapshot, journalPath);
+            int turns = 5 + seed * 3;
+            for (int turn = 0; turn < turns && !engine.isGameOver(); turn++) {
+                agent.playTurn(engine, random);
+                // Not every turn collects, so the records interleave differently
+                if (turn % 2 == 0)
+                    engine.collectResources();
+                engine.endTurn();
+            }
+            journal.close();
+
+            Game recovered = ActionJournal.recover(snapshot, journalPath);
+            check(recovered.getGrid().getStateHash() == engine.getGrid().getStateHash()
+                    && recovered.getEngine().getCurrentPlayerIndex() == engine.getCurrentPlayerIndex(),
+                    "seed " + seed + " recovers to the final state");
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            System.err.println("FAILED: " + what);
+            System.exit(1);
+        }
+    }
+}
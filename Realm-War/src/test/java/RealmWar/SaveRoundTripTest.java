@@ -0,0 +1,108 @@
+package RealmWar;
+
+import AI.ScriptedAgent;
+import Engine.RulesEngine;
+import Grid.GridBinaryCodec;
+import Utils.BinaryOut;
+import Utils.GameLog;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Saves a played game as JSON and as binary and checks both load back to the same state,
+// and that a version 1 binary save still loads. Run with the game classes and Gson on the
+// class path; exits with status 1 on the first failed check.
+public class SaveRoundTripTest {
+
+    public static void main(String[] args) throws Exception {
+        GameLog.setQuiet(true);
+        Path dir = Files.createTempDirectory("realmwar-saves");
+
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("Ann", 1));
+        players.add(new Player("B\u00e9", 2));
+        Game game = new Game(players, 40, 40, 5);
+        RulesEngine engine = game.getEngine();
+        ScriptedAgent agent = new ScriptedAgent();
+        Random random = new Random(2);
+        for (int turn = 0; turn < 30; turn++) {
+            agent.playTurn(engine, random);
+            engine.collectResources();
+            engine.endTurn();
+        }
+
+        Path json = dir.resolve("game.json");
+        long jsonHash = engine.getGrid().getStateHash();
+        game.saveGame(json.toString());
+        check(engine.getGrid().getStateHash() == jsonHash, "saving leaves the game untouched");
+        Game fromJson = load(json);
+        check(fromJson.getGrid().getStateHash() == jsonHash, "JSON save reloads to the same state");
+        check(fromJson.getEngine().getCurrentPlayerIndex() == engine.getCurrentPlayerIndex(),
+                "JSON save keeps the current player");
+        check(fromJson.getPlayers().get(1).getName().equals("B\u00e9"), "JSON save keeps non-ASCII names");
+
+        // Generated terrain is left out of this one
+        Path seeded = dir.resolve("seeded.rws");
+        game.saveBinary(seeded.toString(), false);
+        Game fromSeeded = load(seeded);
+        check(fromSeeded.getGrid().getStateHash() == jsonHash, "seeded binary save reloads to the same state");
+        check(fromSeeded.getPlayers().get(1).getName().equals("B\u00e9"), "binary save keeps non-ASCII names");
+
+        // A grid read from JSON no longer follows its seed, so this one carries full terrain
+        Path full = dir.resolve("full.rws");
+        fromJson.saveBinary(full.toString(), false);
+        Game fromFull = load(full);
+        check(fromFull.getGrid().getStateHash() == jsonHash, "full terrain binary save reloads to the same state");
+
+        Path original = dir.resolve("original.json");
+        Path again = dir.resolve("again.json");
+        game.saveGame(original.toString());
+        fromFull.saveGame(again.toString());
+        check(Arrays.equals(Files.readAllBytes(original), Files.readAllBytes(again)),
+                "JSON of a binary round trip matches the original's");
+
+        Path v1 = dir.resolve("v1.rws");
+        writeVersion1(fromJson, full, dir.resolve("grid.bin"), v1);
+        Game fromV1 = load(v1);
+        check(fromV1.getGrid().getStateHash() == jsonHash, "version 1 binary save still loads");
+
+        System.out.println("SaveRoundTripTest passed");
+    }
+
+    private static Game load(Path path) {
+        Game game = new Game(new ArrayList<>(), 1, 1).loadGame(path.toString());
+        check(game != null, "loads " + path.getFileName());
+        return game;
+    }
+
+    // A version 1 save is a version 2 full terrain save without the terrain mode byte,
+    // which follows the grid's width, height and seed
+    private static void writeVersion1(Game game, Path fullSave, Path gridFile, Path v1) throws Exception {
+        try (BinaryOut out = new BinaryOut(gridFile)) {
+            GridBinaryCodec.write(out, game.getGrid());
+        }
+        byte[] save = Files.readAllBytes(fullSave);
+        byte[] grid = Files.readAllBytes(gridFile);
+        int gridStart = save.length - grid.length;
+        int modeByte = gridStart + 16;
+        check(save[modeByte] == GridBinaryCodec.FULL_TERRAIN, "full terrain save has its mode byte");
+
+        byte[] old = new byte[save.length - 1];
+        System.arraycopy(save, 0, old, 0, modeByte);
+        System.arraycopy(save, modeByte + 1, old, modeByte, save.length - modeByte - 1);
+        old[4] = 0;
+        old[5] = 1;
+        Files.write(v1, old);
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            System.err.println("FAILED: " + what);
+            System.exit(1);
+        }
+    }
+}